@@ -0,0 +1,71 @@
+package kitEditor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import structures.KitBank;
+import utils.RomUtilities;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KitCompileBenchmark {
+    @Param({"0", "50"})
+    public int dither;
+
+    private final Sample[] samples = new Sample[KitBank.MAX_SAMPLES];
+    private final byte[] bank = new byte[RomUtilities.BANK_SIZE];
+    private final KitBank kit = KitBank.wrap(bank);
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0x15D1);
+        // A full kit, evenly split between the samples.
+        int sampleSize = KitBank.MAX_SAMPLE_DATA_SIZE / samples.length / 0x10 * 0x10;
+        for (int i = 0; i < samples.length; ++i) {
+            byte[] data = new byte[sampleSize];
+            random.nextBytes(data);
+            samples[i] = Sample.createFromNibbles(data, "S" + i);
+            samples[i].setDither(dither);
+        }
+    }
+
+    // Packs every sample again, as a compile does after edits or dither changes.
+    @Benchmark
+    public byte[] pack() {
+        int offset = 0x60;
+        for (int i = 0; i < samples.length; ++i) {
+            Sample sample = samples[i];
+            int blocks = sample.length() / sbc.BLOCK_LENGTH;
+            if (dither == 0) {
+                sbc.pack(sample.getData(), 0, blocks, bank, offset);
+            } else {
+                sbc.packDithered(sample.getData(), blocks, dither / 100f, i + 1, bank, offset);
+            }
+            offset += blocks * sbc.BLOCK_LENGTH / 2;
+        }
+        return bank;
+    }
+
+    // Compiles with every sample's packed nibbles cached, as when recompiling after dropping or adding a sample.
+    @Benchmark
+    public byte[] compileKitCached() {
+        KitBuilder.compile(kit, samples);
+        return bank;
+    }
+}
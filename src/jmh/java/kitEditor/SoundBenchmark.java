@@ -0,0 +1,46 @@
+package kitEditor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import structures.KitBank;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoundBenchmark {
+    @Param({"NONE", "LINEAR", "BAND_LIMITED"})
+    public String interpolation;
+
+    private byte[] nibbles;
+    private byte[] upsampled;
+
+    // A sample filling a whole kit.
+    @Setup
+    public void setUp() {
+        nibbles = new byte[KitBank.MAX_SAMPLE_DATA_SIZE];
+        new Random(0x15D1).nextBytes(nibbles);
+        upsampled = new byte[NibbleUpsampler.outputLength(nibbles.length)];
+    }
+
+    @Benchmark
+    public byte[] render() {
+        NibbleUpsampler.render(nibbles, upsampled, NibbleUpsampler.Interpolation.valueOf(interpolation));
+        return upsampled;
+    }
+}
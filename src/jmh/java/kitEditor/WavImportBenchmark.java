@@ -0,0 +1,80 @@
+package kitEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WavImportBenchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int SECONDS = 2;
+
+    @Param({"16", "24"})
+    public int bits;
+
+    // Resampler.Quality is package-private, out of reach of the generated benchmark code.
+    @Param({"FAST", "HIGH"})
+    public String quality;
+
+    private File wavFile;
+
+    // A 440 Hz stereo tone, written once per trial.
+    @Setup
+    public void setUp() throws IOException {
+        int bytesPerSample = bits / 8;
+        int frames = SAMPLE_RATE * SECONDS;
+        int dataSize = frames * CHANNELS * bytesPerSample;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.putInt(0x46464952).putInt(36 + dataSize).putInt(0x45564157);
+        wav.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) CHANNELS).putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * CHANNELS * bytesPerSample).putShort((short) (CHANNELS * bytesPerSample))
+                .putShort((short) bits);
+        wav.putInt(0x61746164).putInt(dataSize);
+        for (int frame = 0; frame < frames; ++frame) {
+            int value = (int) (Math.sin(2 * Math.PI * 440 * frame / SAMPLE_RATE) * ((1 << (bits - 1)) - 1));
+            for (int channel = 0; channel < CHANNELS; ++channel) {
+                for (int b = 0; b < bytesPerSample; ++b) {
+                    wav.put((byte) (value >> (8 * b)));
+                }
+            }
+        }
+
+        wavFile = File.createTempFile("lsdpatch-benchmark", ".wav");
+        try (RandomAccessFile file = new RandomAccessFile(wavFile, "rw")) {
+            file.write(wav.array());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        wavFile.delete();
+    }
+
+    @Benchmark
+    public int createFromWav() throws IOException {
+        return Sample.createFromWav(wavFile, Resampler.Quality.valueOf(quality)).length();
+    }
+}
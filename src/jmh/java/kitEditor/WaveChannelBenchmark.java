@@ -0,0 +1,42 @@
+package kitEditor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import structures.KitBank;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveChannelBenchmark {
+    private byte[] nibbles;
+    private float[] analog;
+
+    // A sample filling a whole kit.
+    @Setup
+    public void setUp() {
+        nibbles = new byte[KitBank.MAX_SAMPLE_DATA_SIZE];
+        new Random(0x15D1).nextBytes(nibbles);
+        analog = new float[WaveChannel.outputLength(nibbles.length)];
+    }
+
+    @Benchmark
+    public float[] render() {
+        WaveChannel.render(nibbles, WaveChannel.Volume.FULL, WaveChannel.Model.DMG, analog);
+        return analog;
+    }
+}
@@ -0,0 +1,46 @@
+package paletteEditor;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import structures.RomImage;
+import structures.SyntheticRom;
+import utils.RomUtilities;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteRenderBenchmark {
+    private RomImage romImage;
+    private int paletteOffset;
+    private BufferedImage songImage;
+
+    @Setup
+    public void setUp() throws IOException {
+        romImage = RomImage.wrap(SyntheticRom.create());
+        paletteOffset = RomUtilities.findPaletteOffset(romImage);
+        songImage = ImageIO.read(PaletteRenderBenchmark.class.getResource("/song.bmp"));
+    }
+
+    @Benchmark
+    public BufferedImage renderSongScreen() {
+        return PaletteEditor.modifyUsingPalette(songImage, romImage, paletteOffset);
+    }
+}
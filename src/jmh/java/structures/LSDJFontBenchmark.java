@@ -0,0 +1,47 @@
+package structures;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.RomUtilities;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LSDJFontBenchmark {
+    private LSDJFont font;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        RomImage romImage = RomImage.wrap(SyntheticRom.create());
+        font = new LSDJFont();
+        font.setRomImage(romImage);
+        font.setDataOffset(RomUtilities.findFontOffset(romImage) + LSDJFont.FONT_HEADER_SIZE);
+        image = font.saveDataToImage();
+    }
+
+    @Benchmark
+    public BufferedImage saveDataToImage() {
+        return font.saveDataToImage();
+    }
+
+    @Benchmark
+    public String loadImageData() {
+        return font.loadImageData("BNCH", image);
+    }
+}
@@ -0,0 +1,63 @@
+package structures;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.RomUtilities;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RomBenchmark {
+    private byte[] rom;
+    private RomImage romImage;
+    private byte counter;
+
+    @Setup
+    public void setUp() {
+        rom = SyntheticRom.create();
+        romImage = RomImage.wrap(rom.clone());
+        if (RomUtilities.findPaletteOffset(romImage) == -1 || RomUtilities.findFontOffset(romImage) == -1) {
+            throw new IllegalStateException("Synthetic ROM layout not recognized.");
+        }
+    }
+
+    // Full search, as done the first time a LSDj version is opened.
+    @Benchmark
+    public RomLayout scanLayout() {
+        return RomLayout.scan(RomImage.wrap(rom));
+    }
+
+    // Goes through the on-disk layout cache, as done when opening a known LSDj version.
+    @Benchmark
+    public int findOffsets() {
+        RomImage image = RomImage.wrap(rom);
+        return RomUtilities.findPaletteOffset(image) + RomUtilities.findPaletteNameOffset(image)
+                + RomUtilities.findFontOffset(image) + RomUtilities.findFontNameOffset(image);
+    }
+
+    @Benchmark
+    public void fixChecksum() {
+        RomUtilities.fixChecksum(romImage);
+    }
+
+    // A kit edit followed by the checksum update done before saving.
+    @Benchmark
+    public void updateChecksum() {
+        romImage.set(SyntheticRom.FIRST_KIT_BANK * RomUtilities.BANK_SIZE + 0x100, ++counter);
+        RomUtilities.updateChecksum(romImage);
+    }
+}
@@ -0,0 +1,67 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import utils.RomUtilities;
+
+/**
+ * Builds ROM images laid out like LSDj's, filled with random data, so that benchmarks don't need a real ROM.
+ */
+public final class SyntheticRom {
+    public static final int PALETTE_COUNT = 6;
+    public static final int FIRST_KIT_BANK = 8;
+    public static final int KIT_BANK_COUNT = 16;
+
+    private static final int SCREEN_BACKGROUND_BANK = 1;
+    private static final int PALETTE_NAME_BANK = 27;
+    private static final int FONT_BANK = 30;
+
+    private SyntheticRom() {
+    }
+
+    public static byte[] create() {
+        Random random = new Random(0x15D1);
+        byte[] rom = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
+        random.nextBytes(rom);
+
+        // Palettes, directly followed by the screen backgrounds.
+        int screenBackground = SCREEN_BACKGROUND_BANK * RomUtilities.BANK_SIZE + 0x1000;
+        fillNonZero(rom, SCREEN_BACKGROUND_BANK, random);
+        Arrays.fill(rom, screenBackground, screenBackground + 17, (byte) 0);
+        Arrays.fill(rom, screenBackground + 17, screenBackground + 20, (byte) 72);
+
+        // Font names, then two sets of palette names.
+        int names = PALETTE_NAME_BANK * RomUtilities.BANK_SIZE;
+        Arrays.fill(rom, names, names + RomUtilities.BANK_SIZE, (byte) -1);
+        names += 0x100;
+        rom[names - 1] = 0;
+        for (int i = 0; i < 3 + 2 * PALETTE_COUNT; ++i) {
+            for (int j = 0; j < 4; ++j) {
+                rom[names++] = (byte) ('A' + random.nextInt(26));
+            }
+            rom[names++] = 0;
+        }
+
+        // End of the graphics font, directly followed by the fonts.
+        int fontEnd = FONT_BANK * RomUtilities.BANK_SIZE + 0x100;
+        fillNonZero(rom, FONT_BANK, random);
+        byte[] fontEndSignature = {
+                0, 0, 0, 0, (byte) 0xd0, (byte) 0x90, 0x50, 0x50, 0x50, 0x50, 0x50, 0x50, (byte) 0xd0, (byte) 0x90, 0, 0
+        };
+        System.arraycopy(fontEndSignature, 0, rom, fontEnd, fontEndSignature.length);
+
+        for (int bank = FIRST_KIT_BANK; bank < FIRST_KIT_BANK + KIT_BANK_COUNT; ++bank) {
+            rom[bank * RomUtilities.BANK_SIZE] = 0x60;
+            rom[bank * RomUtilities.BANK_SIZE + 1] = 0x40;
+        }
+        return rom;
+    }
+
+    // Keeps zero runs from matching the signatures looked for.
+    private static void fillNonZero(byte[] rom, int bank, Random random) {
+        for (int i = bank * RomUtilities.BANK_SIZE; i < (bank + 1) * RomUtilities.BANK_SIZE; ++i) {
+            rom[i] = (byte) (1 + random.nextInt(255));
+        }
+    }
+}
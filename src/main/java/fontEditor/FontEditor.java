@@ -13,6 +13,7 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 
 import structures.LSDJFont;
+import structures.RomImage;
 import utils.FontIO;
 import utils.JFileChooserFactory;
 import utils.JFileChooserFactory.FileOperation;
@@ -29,7 +30,7 @@ public class FontEditor extends JFrame implements java.awt.event.ItemListener, j
 
     private final JComboBox<String> fontSelector;
 
-    private byte[] romImage = null;
+    private RomImage romImage = null;
     private int fontOffset = -1;
     private int selectedFontOffset = -1;
 
@@ -204,7 +205,7 @@ public class FontEditor extends JFrame implements java.awt.event.ItemListener, j
         }
     }
 
-    public void setRomImage(byte[] romImage) {
+    public void setRomImage(RomImage romImage) {
         this.romImage = romImage;
         fontMap.setRomImage(romImage);
         tileEditor.setRomImage(romImage);
@@ -25,10 +25,11 @@ import java.awt.Graphics;
 import javax.swing.JPanel;
 
 import structures.LSDJFont;
+import structures.RomImage;
 
 public class FontMap extends JPanel implements java.awt.event.MouseListener {
     private static final long serialVersionUID = -7745908775698863845L;
-    private byte[] romImage = null;
+    private RomImage romImage = null;
     private int fontOffset = -1;
     private int tileZoom = 1;
     private int displayTileSize = 8;
@@ -82,8 +83,8 @@ public class FontMap extends JPanel implements java.awt.event.MouseListener {
     private int getColor(int tile, int x, int y) {
         int tileOffset = fontOffset + tile * 16 + y * 2;
         int xMask = 7 - x;
-        int value = (romImage[tileOffset] >> xMask) & 1;
-        value |= ((romImage[tileOffset + 1] >> xMask) & 1) << 1;
+        int value = (romImage.get(tileOffset) >> xMask) & 1;
+        value |= ((romImage.get(tileOffset + 1) >> xMask) & 1) << 1;
         return value;
     }
 
@@ -100,7 +101,7 @@ public class FontMap extends JPanel implements java.awt.event.MouseListener {
         }
     }
 
-    void setRomImage(byte[] romImage) {
+    void setRomImage(RomImage romImage) {
         this.romImage = romImage;
     }
 
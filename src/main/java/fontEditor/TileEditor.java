@@ -26,6 +26,7 @@ import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 import structures.LSDJFont;
+import structures.RomImage;
 
 class TileEditor extends JPanel implements java.awt.event.MouseListener, java.awt.event.MouseMotionListener {
 
@@ -52,7 +53,7 @@ class TileEditor extends JPanel implements java.awt.event.MouseListener, java.aw
         addMouseMotionListener(this);
     }
 
-    void setRomImage(byte[] romImage) {
+    void setRomImage(RomImage romImage) {
         font.setRomImage(romImage);
     }
 
@@ -0,0 +1,236 @@
+package kitEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import structures.KitBank;
+import utils.RomUtilities;
+
+/**
+ * Compiles samples into kit banks without going through the kit editor, so that it can run headless and on
+ * several banks at once. Nothing here touches shared state.
+ */
+public class KitBuilder {
+    private static final int BLOCK_LENGTH = 32;
+    private static final int BLOCK_SIZE = 0x10;
+    // Share of a sample's length that fitting may cut.
+    private static final double MAX_TRIM = 0.5;
+
+    private KitBuilder() {
+    }
+
+    /**
+     * Builds kit banks out of the WAV files of a folder, taken in file name order. The kit is named after the
+     * folder and each sample after its file.
+     * <p>
+     * Samples that don't fit are trimmed as described in {@link #fit}. If that would cut too much, the samples are
+     * split in order across as many banks as needed instead, the extra kits getting a number after their name.
+     *
+     * @param highQuality resample with the slower high quality filter.
+     */
+    public static List<byte[]> buildKits(File wavFolder, boolean highQuality) throws IOException {
+        Resampler.Quality quality = highQuality ? Resampler.Quality.HIGH : Resampler.Quality.FAST;
+        File[] wavFiles = wavFolder.listFiles(KitBuilder::isWavFile);
+        if (wavFiles == null) {
+            throw new IOException("Couldn't list " + wavFolder);
+        }
+        Arrays.sort(wavFiles);
+
+        Sample[] samples = new Sample[wavFiles.length];
+        for (int i = 0; i < wavFiles.length; ++i) {
+            try {
+                samples[i] = Sample.createFromWav(wavFiles[i], quality);
+            } catch (IOException e) {
+                throw new IOException(wavFiles[i] + ": " + e.getMessage(), e);
+            }
+        }
+
+        Sample[] fitted = samples.length <= KitBank.MAX_SAMPLES ? fit(samples, KitBank.MAX_SAMPLE_DATA_SIZE) : null;
+        List<Sample[]> kits = fitted != null
+                ? Collections.singletonList(fitted)
+                : split(samples, KitBank.MAX_SAMPLE_DATA_SIZE);
+
+        List<byte[]> banks = new ArrayList<>();
+        for (Sample[] kit : kits) {
+            String[] sampleNames = new String[kit.length];
+            for (int i = 0; i < kit.length; ++i) {
+                String name = kit[i].getName();
+                int extension = name.lastIndexOf('.');
+                sampleNames[i] = extension == -1 ? name : name.substring(0, extension);
+            }
+            banks.add(buildKit(numberedKitName(wavFolder.getName(), banks.size() + 1), kit, sampleNames));
+        }
+        return banks;
+    }
+
+    /**
+     * Compiles a new kit bank out of at most 15 samples and their names.
+     */
+    static byte[] buildKit(String kitName, Sample[] kit, String[] sampleNames) {
+        byte[] bank = new byte[RomUtilities.BANK_SIZE];
+        KitBank kitBank = KitBank.wrap(bank);
+        kitBank.clear();
+        kitBank.setName(kitName);
+        for (int i = 0; i < kit.length; ++i) {
+            kitBank.setSampleName(i, sampleNames[i]);
+        }
+        compile(kitBank, kit);
+        return bank;
+    }
+
+    /**
+     * The name of the n-th kit a kit was split into. The first keeps the name, the others get their number after
+     * it, cutting the name short if needed.
+     */
+    static String numberedKitName(String kitName, int number) {
+        if (number == 1) {
+            return kitName;
+        }
+        String suffix = Integer.toString(number);
+        return kitName.substring(0, Math.min(kitName.length(), KitBank.KIT_NAME_LENGTH - suffix.length())) + suffix;
+    }
+
+    /**
+     * Trims the samples so that they fit in the given number of bytes once compiled.
+     * <p>
+     * The cost of a fit is the longest cut made to a sample: only the longest samples are trimmed, all down to the
+     * same length, found by binary search. Short samples, usually the ones that matter most in a drum kit, are kept
+     * whole. Returns null if a sample would lose more than half of its length.
+     */
+    static Sample[] fit(Sample[] samples, int budget) {
+        if (sampleDataSize(samples) <= budget) {
+            return samples;
+        }
+        int low = 0;
+        int high = 0;
+        for (Sample sample : samples) {
+            if (sample != null) {
+                high = Math.max(high, sample.length() / BLOCK_LENGTH);
+            }
+        }
+        // Largest length in blocks that fits.
+        while (low < high) {
+            int middle = (low + high + 1) / 2;
+            if (cappedSize(samples, middle) <= budget) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        Sample[] fitted = samples.clone();
+        int maxLength = low * BLOCK_LENGTH;
+        for (int i = 0; i < fitted.length; ++i) {
+            Sample sample = fitted[i];
+            if (sample != null && sample.length() > maxLength) {
+                if (maxLength < sample.length() * (1 - MAX_TRIM)) {
+                    return null;
+                }
+                fitted[i] = sample.trimmed(maxLength);
+            }
+        }
+        return fitted;
+    }
+
+    /**
+     * Spreads the samples in order over as few kits as possible, starting a new kit whenever the next sample
+     * doesn't fit. A sample too long for a kit of its own is trimmed.
+     */
+    static List<Sample[]> split(Sample[] samples, int budget) {
+        List<Sample[]> kits = new ArrayList<>();
+        List<Sample> kit = new ArrayList<>();
+        int kitSize = 0;
+        for (Sample sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            int size = packedSize(sample.length());
+            if (size > budget) {
+                sample = sample.trimmed(budget / BLOCK_SIZE * BLOCK_LENGTH);
+                size = packedSize(sample.length());
+            }
+            if (kit.size() == KitBank.MAX_SAMPLES || kitSize + size > budget) {
+                kits.add(kit.toArray(new Sample[0]));
+                kit.clear();
+                kitSize = 0;
+            }
+            kit.add(sample);
+            kitSize += size;
+        }
+        if (!kit.isEmpty() || kits.isEmpty()) {
+            kits.add(kit.toArray(new Sample[0]));
+        }
+        return kits;
+    }
+
+    public static boolean isWavFile(File file) {
+        return file.isFile() && file.getName().toLowerCase().endsWith(".wav");
+    }
+
+    // Space taken by the samples once packed into nibbles.
+    static int sampleDataSize(Sample[] samples) {
+        int size = 0;
+        for (Sample sample : samples) {
+            if (sample != null) {
+                size += packedSize(sample.length());
+            }
+        }
+        return size;
+    }
+
+    // Samples are packed by blocks of 32, into 16 bytes.
+    private static int packedSize(int length) {
+        return length / BLOCK_LENGTH * BLOCK_SIZE;
+    }
+
+    private static int cappedSize(Sample[] samples, int maxBlocks) {
+        int size = 0;
+        for (Sample sample : samples) {
+            if (sample != null) {
+                size += Math.min(sample.length() / BLOCK_LENGTH, maxBlocks) * BLOCK_SIZE;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Compiles samples into a kit, the same way as the kit editor does. This is the way to put new samples in a
+     * {@link KitBank} handed out by {@link structures.LsdjRom}, which only deals with packed nibbles.
+     * <p>
+     * Samples are signed 8-bit at 11468 Hz, the end that doesn't fill a block of 32 being dropped. Null entries
+     * are empty slots, which may only come after the last sample. Names are left as they are.
+     *
+     * @param dither dither applied when quantizing to 4 bits, in percents of a full TPDF dither.
+     * @throws IllegalArgumentException if the samples don't fit, see {@link #fit}, or the dither is out of range.
+     */
+    public static void compile(KitBank kit, List<byte[]> samples, int dither) {
+        if (dither < 0 || dither > 100) {
+            throw new IllegalArgumentException("Dither must be between 0 and 100");
+        }
+        List<byte[]> packedSamples = new ArrayList<>();
+        for (int i = 0; i < samples.size(); ++i) {
+            byte[] data = samples.get(i);
+            if (data == null) {
+                packedSamples.add(null);
+                continue;
+            }
+            Sample sample = Sample.createFromData(data, "");
+            sample.setDither(dither);
+            packedSamples.add(sbc.packSlot(sample, i));
+        }
+        kit.setSampleNibbles(packedSamples);
+    }
+
+    /**
+     * Packs the samples into the kit and updates its address table, as laid out by
+     * {@link KitBank#setSampleNibbles}. Samples after the first empty slot are left out. Names are left as they
+     * are.
+     */
+    static void compile(KitBank kit, Sample[] samples) {
+        kit.setSampleNibbles(sbc.handle(samples));
+    }
+}
@@ -22,7 +22,10 @@ import fontEditor.FontEditor;
 import lsdpatch.LSDPatcher;
 import net.miginfocom.swing.MigLayout;
 import paletteEditor.PaletteEditor;
+import structures.KitBank;
 import structures.LSDJFont;
+import structures.LsdjRom;
+import structures.RomImage;
 import utils.FileDrop;
 import utils.JFileChooserFactory;
 import utils.JFileChooserFactory.FileOperation;
@@ -39,10 +42,15 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class KitEditor extends JFrame {
     private static final long serialVersionUID = -3993608561466542956L;
@@ -54,15 +62,15 @@ public class KitEditor extends JFrame {
     private final PaletteEditor paletteEditor = new PaletteEditor();
     private final FontEditor fontEditor = new FontEditor();
 
-    private static final int MAX_SAMPLES = 15;
+    private static final int MAX_SAMPLES = KitBank.MAX_SAMPLES;
 
     private final java.awt.event.ActionListener bankBoxListener =
             e -> bankBox_actionPerformed();
 
-    private RandomAccessFile romFile;
     private int totSampleSize = 0;
 
-    private byte[] romImage;
+    private RomImage romImage;
+    private LsdjRom lsdjRom;
 
     private Sample[] samples = new Sample[MAX_SAMPLES];
 
@@ -82,16 +90,26 @@ public class KitEditor extends JFrame {
     private final JButton dropSampleButton = new JButton();
     private final JButton saveROMButton = new JButton();
     private final JLabel kitSizeLabel = new JLabel();
+    private final JButton fitKitButton = new JButton();
+    private final JButton trimSampleButton = new JButton();
+    private final JButton normalizeSampleButton = new JButton();
+    private final JButton fadeInSampleButton = new JButton();
+    private final JButton fadeOutSampleButton = new JButton();
     private final SampleCanvas sampleView = new SampleCanvas();
     private final JSlider ditherSlider = new JSlider();
+    private boolean updatingDitherSlider = false;
     private final JSlider volumeSlider = new JSlider();
 
     private final JCheckBox playSampleToggle = new JCheckBox("Play sample on click", true);
     private final JCheckBox playSpeedToggle = new JCheckBox("Play samples in half-speed");
+    private final JCheckBox emulateHardwareToggle = new JCheckBox("Emulate Game Boy output");
+    private final JCheckBox resampleQualityToggle = new JCheckBox("High quality resampling", true);
 
     private final JMenuBar menuBar = new JMenuBar();
 
     private final Sound soundPlayer = new Sound();
+    private final PreviewCache previewCache = new PreviewCache();
+    private TaskRunner taskRunner;
 
     class KitFileFilter implements java.io.FilenameFilter {
         public boolean accept(java.io.File dir, String name) {
@@ -187,15 +205,15 @@ public class KitEditor extends JFrame {
 
         instrList.addMouseListener(new MouseAdapter() {
             public void mousePressed(MouseEvent e) {
-                if (!playSampleToggle.isSelected()) {
-                    return;
-                }
                 if (romImage != null) {
                     int index = instrList.locationToIndex(e.getPoint());
 
                     boolean hasIndex = (index > -1);
                     if (hasIndex) {
-                        playSample(index);
+                        sampleView.setBufferContent(get4BitSamples(index, false));
+                        if (playSampleToggle.isSelected()) {
+                            playSample(index);
+                        }
                     }
                     dropSampleButton.setEnabled(hasIndex);
                     exportSampleButton.setEnabled(hasIndex);
@@ -210,8 +228,18 @@ public class KitEditor extends JFrame {
         exportSampleButton.addActionListener(e -> exportSample());
         exportAllSamplesButton.addActionListener(e -> exportAllSamplesFromKit());
 
+        instrList.addListSelectionListener(e -> updateDitherSlider());
+        ditherSlider.addChangeListener(e -> ditherSlider_stateChanged());
+
         addSampleButton.addActionListener(e -> selectSampleToAdd());
         dropSampleButton.addActionListener(e -> dropSample());
+        fitKitButton.addActionListener(e -> fitKit());
+
+        trimSampleButton.addActionListener(e -> editSelectedSample(Sample::trim));
+        normalizeSampleButton.addActionListener(e -> editSelectedSample(Sample::normalize));
+        fadeInSampleButton.addActionListener(e -> editSelectedSample(Sample::fadeIn));
+        fadeOutSampleButton.addActionListener(e -> editSelectedSample(Sample::fadeOut));
+        sampleView.addPropertyChangeListener("selection", e -> updateSampleEditButtons());
 
         saveROMButton.addActionListener(e -> saveROMButton_actionPerformed());
     }
@@ -223,6 +251,7 @@ public class KitEditor extends JFrame {
         //setIconImage(Toolkit.getDefaultToolkit().createImage(Frame1.class.getResource("[Your Icon]")));
         setTitle("lsdpatch.LSDPatcher Redux v" + LSDPatcher.getVersion());
         contentPane = (JPanel) this.getContentPane();
+        taskRunner = new TaskRunner(getRootPane());
         contentPane.setLayout(new MigLayout("",
                 "[150:60%:,grow][200:40%:,fill,grow]",
                 ""));
@@ -239,6 +268,7 @@ public class KitEditor extends JFrame {
         kitContainer.add(bankBox, "grow,wrap");
         kitContainer.add(instrList, "grow,wrap");
         kitContainer.add(kitSizeLabel, "grow,wrap");
+        kitContainer.add(fitKitButton, "wrap");
         kitContainer.setMinimumSize(kitContainer.getPreferredSize());
 
         loadKitButton.setEnabled(false);
@@ -270,6 +300,18 @@ public class KitEditor extends JFrame {
         saveROMButton.setEnabled(false);
         saveROMButton.setText("Save ROM");
 
+        ditherSlider.setValue(0);
+        ditherSlider.setEnabled(false);
+
+        fitKitButton.setText("Trim or split samples to fit");
+        fitKitButton.setEnabled(false);
+
+        trimSampleButton.setText("Trim");
+        normalizeSampleButton.setText("Normalize");
+        fadeInSampleButton.setText("Fade in");
+        fadeOutSampleButton.setText("Fade out");
+        updateSampleEditButtons();
+
 
         contentPane.add(kitContainer, "grow, cell 0 0, spany");
         contentPane.add(loadKitButton, "wrap");
@@ -281,13 +323,21 @@ public class KitEditor extends JFrame {
         contentPane.add(exportSampleButton, "wrap");
         contentPane.add(exportAllSamplesButton, "wrap");
         contentPane.add(addSampleButton, "span 2,wrap");
+        contentPane.add(resampleQualityToggle, "span 2,wrap");
         contentPane.add(dropSampleButton, "span 2,wrap 10");
         contentPane.add(saveROMButton, "span 2,wrap push");
         contentPane.add(playSampleToggle, "wrap");
         contentPane.add(playSpeedToggle, "wrap");
+        contentPane.add(emulateHardwareToggle, "wrap");
         contentPane.add(new JLabel("Volume"), "split 2");
         contentPane.add(volumeSlider, "grow, wrap");
-        contentPane.add(sampleView, "grow, span 2,wmin 10, hmin 64");
+        contentPane.add(new JLabel("Dither"), "split 2");
+        contentPane.add(ditherSlider, "grow, wrap");
+        contentPane.add(sampleView, "grow, span 2,wmin 10, hmin 64, wrap");
+        contentPane.add(trimSampleButton, "span 2, split 4");
+        contentPane.add(normalizeSampleButton);
+        contentPane.add(fadeInSampleButton);
+        contentPane.add(fadeOutSampleButton);
 
         setMinimumSize(getPreferredSize());
         pack();
@@ -300,6 +350,8 @@ public class KitEditor extends JFrame {
 
     private void createFileDrop() {
         new FileDrop(contentPane, files -> {
+            // Dropped samples are imported together once the other files are handled.
+            List<File> wavFiles = new ArrayList<>();
             for (File file : files) {
                 String fileName = file.getName().toLowerCase();
                 if (fileName.endsWith(".wav")) {
@@ -310,7 +362,7 @@ public class KitEditor extends JFrame {
                                 JOptionPane.ERROR_MESSAGE);
                         continue;
                     }
-                    addSample(file);
+                    wavFiles.add(file);
                 } else if (fileName.endsWith(".gb")) {
                     loadRom(file);
                 } else if (fileName.endsWith(".kit")) {
@@ -330,6 +382,9 @@ public class KitEditor extends JFrame {
                     return;
                 }
             }
+            if (!wavFiles.isEmpty()) {
+                addSamples(wavFiles);
+            }
         });
     }
 
@@ -343,49 +398,39 @@ public class KitEditor extends JFrame {
         }
     }
 
+    private KitBank getSelectedKit() {
+        return lsdjRom.getKitBank(getSelectedROMBank());
+    }
+
     private byte[] get4BitSamples(int index, boolean halfSpeed) {
-        int offset = getSelectedROMBank() * RomUtilities.BANK_SIZE + index * 2;
-        int start = (0xff & romImage[offset]) | ((0xff & romImage[offset + 1]) << 8);
-        int stop = (0xff & romImage[offset + 2]) | ((0xff & romImage[offset + 3]) << 8);
-        if (stop <= start) {
-            return null;
+        byte[] nibbles = getSelectedKit().getSampleNibbles(index);
+        if (nibbles == null || !halfSpeed) {
+            return nibbles;
         }
-        byte[] arr;
-        if (halfSpeed) {
-            arr = new byte[(stop - start) * 2];
-            for (int i = start; i < stop; ++i) {
-                arr[(i - start) * 2] = romImage[getSelectedROMBank() * RomUtilities.BANK_SIZE - RomUtilities.BANK_SIZE + i];
-                arr[(i - start) * 2 + 1] = romImage[getSelectedROMBank() * RomUtilities.BANK_SIZE - RomUtilities.BANK_SIZE + i];
-            }
-
-        } else {
-            arr = new byte[stop - start];
-            for (int i = start; i < stop; ++i) {
-                arr[i - start] = romImage[getSelectedROMBank() * RomUtilities.BANK_SIZE - RomUtilities.BANK_SIZE + i];
-            }
+        byte[] arr = new byte[nibbles.length * 2];
+        for (int i = 0; i < nibbles.length; ++i) {
+            arr[i * 2] = nibbles[i];
+            arr[i * 2 + 1] = nibbles[i];
         }
         return arr;
     }
 
     private void playSample(int index) {
-
-        byte[] nibblesForRepaint;
-        byte[] nibblesForPlayback;
-        if (playSpeedToggle.isSelected()) {
-            nibblesForPlayback = get4BitSamples(index, true);
-            nibblesForRepaint = get4BitSamples(index, false);
-        } else {
-            nibblesForPlayback = get4BitSamples(index, false);
-            nibblesForRepaint = nibblesForPlayback;
-
-        }
-        if (nibblesForPlayback == null) {
+        byte[] nibbles = get4BitSamples(index, false);
+        if (nibbles == null) {
             return;
         }
+        boolean halfSpeed = playSpeedToggle.isSelected();
+        boolean hardware = emulateHardwareToggle.isSelected();
+        byte[] waveData = previewCache.get(getSelectedROMBank(), index, halfSpeed, hardware);
+        if (waveData == null) {
+            byte[] nibblesForPlayback = halfSpeed ? get4BitSamples(index, true) : nibbles;
+            waveData = hardware ? Sound.renderHardwarePreview(nibblesForPlayback)
+                    : Sound.preProcessNibblesIntoWaveData(nibblesForPlayback);
+            previewCache.put(getSelectedROMBank(), index, halfSpeed, hardware, waveData);
+        }
         try {
-            Sound.play(nibblesForPlayback, volumeSlider.getValue()/100.f);
-            sampleView.setBufferContent(nibblesForRepaint);
-            sampleView.repaint();
+            Sound.playWaveData(waveData, volumeSlider.getValue()/100.f);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, e.getMessage(), "Audio error",
                     JOptionPane.INFORMATION_MESSAGE);
@@ -394,32 +439,36 @@ public class KitEditor extends JFrame {
     }
 
     private void loadRom(File gbFile) {
-        try {
-            romImage = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            setTitle(gbFile.getAbsoluteFile().toString() + " - lsdpatch.LSDPatcher Redux v" + LSDPatcher.getVersion());
-            romFile = new RandomAccessFile(gbFile, "r");
-            romFile.readFully(romImage);
-            romFile.close();
-            fontEditor.setRomImage(romImage);
-            paletteEditor.setRomImage(romImage);
-            saveROMItem.setEnabled(true);
-            saveROMButton.setEnabled(true);
-            importKitsItem.setEnabled(true);
-            importFontsItem.setEnabled(true);
-            importPalettesItem.setEnabled(true);
-            importAllItem.setEnabled(true);
-            loadKitButton.setEnabled(true);
-            exportKitButton.setEnabled(true);
-            eraseKitButton.setEnabled(true);
-            exportAllSamplesButton.setEnabled(true);
-            renameKitButton.setEnabled(true);
-            flushWavFiles();
-            updateRomView();
-            bankBox.setSelectedIndex(0);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, e.getMessage(), "File error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        taskRunner.run("Loading " + gbFile.getName() + "...", true, progress -> {
+            RomImage image = RomImage.open(gbFile);
+            // Scans for the palettes, fonts and kits while off the event dispatch thread. The rest of the image
+            // stays mapped until needed.
+            image.getLayout();
+            return image;
+        }, image -> setRomImage(image, gbFile));
+    }
+
+    private void setRomImage(RomImage image, File gbFile) {
+        romImage = image;
+        lsdjRom = new LsdjRom(image);
+        previewCache.clear();
+        setTitle(gbFile.getAbsoluteFile().toString() + " - lsdpatch.LSDPatcher Redux v" + LSDPatcher.getVersion());
+        fontEditor.setRomImage(romImage);
+        paletteEditor.setRomImage(romImage);
+        saveROMItem.setEnabled(true);
+        saveROMButton.setEnabled(true);
+        importKitsItem.setEnabled(true);
+        importFontsItem.setEnabled(true);
+        importPalettesItem.setEnabled(true);
+        importAllItem.setEnabled(true);
+        loadKitButton.setEnabled(true);
+        exportKitButton.setEnabled(true);
+        eraseKitButton.setEnabled(true);
+        exportAllSamplesButton.setEnabled(true);
+        renameKitButton.setEnabled(true);
+        flushWavFiles();
+        updateRomView();
+        bankBox.setSelectedIndex(0);
     }
 
     private void selectRomToLoad() {
@@ -434,31 +483,18 @@ public class KitEditor extends JFrame {
         }
     }
 
-    private boolean isKitBank(int a_bank) {
-        int l_offset = (a_bank) * RomUtilities.BANK_SIZE;
-        byte l_char_1 = romImage[l_offset++];
-        byte l_char_2 = romImage[l_offset];
-        return (l_char_1 == 0x60 && l_char_2 == 0x40);
-    }
-
     private boolean isEmptyKitBank(int a_bank) {
-        int l_offset = (a_bank) * RomUtilities.BANK_SIZE;
-        byte l_char_1 = romImage[l_offset++];
-        byte l_char_2 = romImage[l_offset];
-        return (l_char_1 == -1 && l_char_2 == -1);
+        return lsdjRom.getKitBank(a_bank).isEmpty();
     }
 
     private String getKitName(int a_bank) {
-        if (isEmptyKitBank(a_bank)) {
-            return "Empty";
-        }
+        KitBank kit = lsdjRom.getKitBank(a_bank);
+        return kit.isEmpty() ? "Empty" : kit.getName();
+    }
 
-        byte[] buf = new byte[6];
-        int offset = (a_bank) * RomUtilities.BANK_SIZE + 0x52;
-        for (int i = 0; i < 6; i++) {
-            buf[i] = romImage[offset++];
-        }
-        return new String(buf);
+    // The ROM image keeps its kit bank list up to date, only rescanning after a bank's first two bytes change.
+    private void updateKitDirectory() {
+        kitDirectory = romImage.getKitBanks();
     }
 
     private void updateRomView() {
@@ -466,11 +502,9 @@ public class KitEditor extends JFrame {
         bankBox.removeActionListener(bankBoxListener);
         bankBox.removeAllItems();
 
-        int l_ui_index = 0;
-        for (int bankNo = 0; bankNo < RomUtilities.BANK_COUNT; bankNo++) {
-            if (isKitBank(bankNo) || isEmptyKitBank(bankNo)) {
-                bankBox.addItem(Integer.toHexString(++l_ui_index).toUpperCase() + ". " + getKitName(bankNo));
-            }
+        updateKitDirectory();
+        for (int l_ui_index = 0; l_ui_index < kitDirectory.length; l_ui_index++) {
+            bankBox.addItem(Integer.toHexString(l_ui_index + 1).toUpperCase() + ". " + getKitName(kitDirectory[l_ui_index]));
         }
         bankBox.setSelectedIndex(tmp == -1 ? 0 : tmp);
         bankBox.addActionListener(bankBoxListener);
@@ -479,6 +513,9 @@ public class KitEditor extends JFrame {
 
     private int m_selected = -1;
 
+    // Bank box index to ROM bank.
+    private int[] kitDirectory = new int[0];
+
     private int getSelectedUiBank() {
         if (bankBox.getSelectedIndex() > -1) {
             m_selected = bankBox.getSelectedIndex();
@@ -487,19 +524,7 @@ public class KitEditor extends JFrame {
     }
 
     private int getSelectedROMBank() {
-        int l_rom_bank = 0;
-        int l_ui_bank = 0;
-
-        for (; ; ) {
-            if (isKitBank(l_rom_bank) || isEmptyKitBank(l_rom_bank)) {
-                if (getSelectedUiBank() == l_ui_bank) {
-                    return l_rom_bank;
-                }
-                l_ui_bank++;
-            }
-            l_rom_bank++;
-        }
-
+        return kitDirectory[getSelectedUiBank()];
     }
 
     private int getROMOffsetForSelectedBank() {
@@ -512,31 +537,26 @@ public class KitEditor extends JFrame {
             return;
         }
 
-        byte[] buf = new byte[3];
-        String[] s = new String[15];
+        String[] s = new String[MAX_SAMPLES];
 
         totSampleSize = 0;
 
-        int bankOffset = getROMOffsetForSelectedBank();
+        KitBank kit = getSelectedKit();
         instrList.removeAll();
         //do banks
 
         //update names
-        int offset = bankOffset + 0x22;
         for (int instrNo = 0; instrNo < MAX_SAMPLES; instrNo++) {
-            boolean isNull = false;
-            for (int i = 0; i < 3; i++) {
-                buf[i] = romImage[offset++];
-                if (isNull) {
-                    buf[i] = '-';
-                } else {
-                    if (buf[i] == 0) {
-                        buf[i] = '-';
-                        isNull = true;
-                    }
-                }
+            // A name ends at its first 0.
+            String name = kit.getSampleName(instrNo);
+            int end = name.indexOf(0);
+            if (end != -1) {
+                name = name.substring(0, end);
             }
-            s[instrNo] = (instrNo + 1) + ". " + new String(buf);
+            while (name.length() < KitBank.SAMPLE_NAME_LENGTH) {
+                name += '-';
+            }
+            s[instrNo] = (instrNo + 1) + ". " + name;
             Sample sample = samples[instrNo];
             if (sample != null) {
                 int sampleLength = (sample.length() / 2 - sample.length() / 2 % 0x10);
@@ -548,17 +568,92 @@ public class KitEditor extends JFrame {
 
         updateKitSizeLabel();
         addSampleButton.setEnabled(firstFreeSampleSlot() != -1);
-        ditherSlider.setEnabled(false);  // TODO: Should be individual per sample.
+        updateDitherSlider();
+    }
+
+    private Sample getSelectedSample() {
+        int index = instrList.getSelectedIndex();
+        return index == -1 ? null : samples[index];
+    }
+
+    private void updateDitherSlider() {
+        Sample sample = getSelectedSample();
+        ditherSlider.setEnabled(sample != null);
+        if (sample != null) {
+            updatingDitherSlider = true;
+            ditherSlider.setValue(sample.getDither());
+            updatingDitherSlider = false;
+        }
+        updateSampleEditButtons();
+    }
+
+    // Edits act on the range selected in the sample view, or on the whole sample.
+    private void updateSampleEditButtons() {
+        boolean hasSample = getSelectedSample() != null;
+        trimSampleButton.setEnabled(hasSample && sampleView.hasSelection());
+        normalizeSampleButton.setEnabled(hasSample);
+        fadeInSampleButton.setEnabled(hasSample);
+        fadeOutSampleButton.setEnabled(hasSample);
+    }
+
+    private interface SampleEdit {
+        void apply(Sample sample, int start, int end);
+    }
+
+    private void editSelectedSample(SampleEdit edit) {
+        int index = instrList.getSelectedIndex();
+        Sample sample = getSelectedSample();
+        if (sample == null) {
+            return;
+        }
+        // Nibbles in the sample view match samples one to one.
+        int start = 0;
+        int end = sample.length();
+        if (sampleView.hasSelection()) {
+            start = Math.min(sampleView.getSelectionStart(), end);
+            end = Math.min(sampleView.getSelectionEnd(), end);
+        }
+        if (end <= start) {
+            return;
+        }
+        edit.apply(sample, start, end);
+        compileKit(() -> {
+            // Compiling refreshes the list, which drops the selection.
+            instrList.setSelectedIndex(index);
+            sampleView.setBufferContent(get4BitSamples(index, false));
+        });
+    }
+
+    private void ditherSlider_stateChanged() {
+        // Showing the first selected sample's dither must not apply it to the rest of the selection.
+        if (updatingDitherSlider || ditherSlider.getValueIsAdjusting()) {
+            return;
+        }
+        int[] indices = instrList.getSelectedIndices();
+        boolean changed = false;
+        for (int index : indices) {
+            Sample sample = samples[index];
+            if (sample != null && sample.getDither() != ditherSlider.getValue()) {
+                sample.setDither(ditherSlider.getValue());
+                changed = true;
+            }
+        }
+        if (changed) {
+            // Compiling refreshes the list, which drops the selection.
+            compileKit(() -> instrList.setSelectedIndices(indices));
+        }
     }
 
     private void updateKitSizeLabel() {
         int sampleSize = totSampleSize;
-        kitSizeLabel.setText(Integer.toHexString(sampleSize) + "/3fa0 bytes used");
-        boolean tooFull = sampleSize > 0x3fa0;
+        kitSizeLabel.setText(Integer.toHexString(sampleSize) + "/"
+                + Integer.toHexString(KitBank.MAX_SAMPLE_DATA_SIZE) + " bytes used");
+        boolean tooFull = sampleSize > KitBank.MAX_SAMPLE_DATA_SIZE;
 
         Color c = tooFull ? Color.red : Color.black;
         kitSizeLabel.setForeground(c);
         instrList.setForeground(c);
+        fitKitButton.setEnabled(tooFull);
     }
 
     private void bankBox_actionPerformed() {
@@ -568,18 +663,14 @@ public class KitEditor extends JFrame {
         }
         // Switched bank.
         prevBankBoxIndex = index;
+        sampleView.setBufferContent(null);
         flushWavFiles();
         createSamplesFromRom();
         updateBankView();
     }
 
     private String getRomSampleName(int index) {
-        int offset = getROMOffsetForSelectedBank() + 0x22 + index * 3;
-        String name = "";
-        name += (char) romImage[offset++];
-        name += (char) romImage[offset++];
-        name += (char) romImage[offset];
-        return name;
+        return getSelectedKit().getSampleName(index);
     }
 
     private void createSamplesFromRom() {
@@ -598,15 +689,38 @@ public class KitEditor extends JFrame {
         }
     }
 
-    private boolean importPalettes(File f) {
+    // A ROM to import from, read ahead off the event dispatch thread.
+    private static class ImportSource {
+        final RomImage romImage;
+        final List<byte[]> kitBanks;
+
+        ImportSource(RomImage romImage, List<byte[]> kitBanks) {
+            this.romImage = romImage;
+            this.kitBanks = kitBanks;
+        }
+    }
+
+    private void readImportSource(File f, Consumer<ImportSource> onSuccess) {
+        taskRunner.run("Reading " + f.getName() + "...", true, progress -> {
+            RomImage otherRomImage = RomImage.open(f);
+            otherRomImage.getLayout();
+            List<byte[]> kitBanks = new ArrayList<>();
+            int bankCount = otherRomImage.bankCount();
+            for (int bank = 0; bank < bankCount && !progress.isCancelled(); ++bank) {
+                byte[] inBuf = new byte[RomUtilities.BANK_SIZE];
+                otherRomImage.get(bank * RomUtilities.BANK_SIZE, inBuf, 0, inBuf.length);
+                if (KitBank.wrap(inBuf).isKit()) {
+                    kitBanks.add(inBuf);
+                }
+                progress.update(100 * (bank + 1) / bankCount);
+            }
+            return new ImportSource(otherRomImage, kitBanks);
+        }, onSuccess);
+    }
+
+    private boolean importPalettes(RomImage otherRomImage) {
         boolean isOk = false;
-        RandomAccessFile otherOpenRom = null;
         try {
-            byte[] otherRomImage = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            otherOpenRom = new RandomAccessFile(f, "r");
-
-            otherOpenRom.readFully(otherRomImage);
-            otherOpenRom.close();
 
             int ownPaletteOffset = RomUtilities.findPaletteOffset(romImage);
             int ownPaletteNameOffset = RomUtilities.findPaletteNameOffset(romImage);
@@ -621,9 +735,9 @@ public class KitEditor extends JFrame {
             }
 
 
-            System.arraycopy(otherRomImage, otherPaletteOffset, romImage, ownPaletteOffset, RomUtilities.PALETTE_SIZE * RomUtilities.getNumberOfPalettes(otherRomImage));
+            RomImage.copy(otherRomImage, otherPaletteOffset, romImage, ownPaletteOffset, RomUtilities.PALETTE_SIZE * RomUtilities.getNumberOfPalettes(otherRomImage));
 
-            System.arraycopy(otherRomImage, otherPaletteNameOffset, romImage, ownPaletteNameOffset, RomUtilities.PALETTE_NAME_SIZE * RomUtilities.getNumberOfPalettes(otherRomImage));
+            RomImage.copy(otherRomImage, otherPaletteNameOffset, romImage, ownPaletteNameOffset, RomUtilities.PALETTE_NAME_SIZE * RomUtilities.getNumberOfPalettes(otherRomImage));
 
             paletteEditor.setRomImage(romImage);
 
@@ -631,33 +745,18 @@ public class KitEditor extends JFrame {
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, e.getMessage(), "File error",
                     JOptionPane.ERROR_MESSAGE);
-        } finally {
-            if (otherOpenRom != null) {
-                try {
-                    otherOpenRom.close();
-                } catch (IOException e) {
-                    JOptionPane.showMessageDialog(this, e.getMessage(), "File error (wth)",
-                            JOptionPane.ERROR_MESSAGE);
-                }
-            }
         }
         return isOk;
     }
 
-    private boolean importFonts(File f) {
+    private boolean importFonts(RomImage otherRomImage) {
         boolean isOk = false;
-        RandomAccessFile otherOpenRom = null;
         try {
-            byte[] otherRomImage = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            otherOpenRom = new RandomAccessFile(f, "r");
-
-            otherOpenRom.readFully(otherRomImage);
-            otherOpenRom.close();
 
             int ownFontOffset = RomUtilities.findFontOffset(romImage);
             int otherFontOffset = RomUtilities.findFontOffset(otherRomImage);
 
-            System.arraycopy(otherRomImage, otherFontOffset, romImage, ownFontOffset, LSDJFont.FONT_SIZE * LSDJFont.FONT_COUNT);
+            RomImage.copy(otherRomImage, otherFontOffset, romImage, ownFontOffset, LSDJFont.FONT_SIZE * LSDJFont.FONT_COUNT);
 
             for (int i = 0; i < LSDJFont.FONT_COUNT; ++i) {
                 RomUtilities.setFontName(romImage, i, RomUtilities.getFontName(otherRomImage, i));
@@ -668,43 +767,24 @@ public class KitEditor extends JFrame {
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, e.getMessage(), "File error",
                     JOptionPane.ERROR_MESSAGE);
-        } finally {
-            if (otherOpenRom != null) {
-                try {
-                    otherOpenRom.close();
-                } catch (IOException e) {
-                    JOptionPane.showMessageDialog(this, e.getMessage(), "File error (wth)",
-                            JOptionPane.ERROR_MESSAGE);
-                }
-            }
         }
         return isOk;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private int importKits(File f) {
+    private int importKits(List<byte[]> kitBanks) {
         try {
-            int outBank = 0;
+            int[] kitSlots = romImage.getKitBanks();
             int copiedBankCount = 0;
-            FileInputStream in = new FileInputStream(f.getAbsolutePath());
-            while (in.available() > 0) {
-                byte[] inBuf = new byte[RomUtilities.BANK_SIZE];
-                in.read(inBuf);
-                if (inBuf[0] == 0x60 && inBuf[1] == 0x40) {
-                    //is kit bank
-                    outBank++;
-                    while (!isKitBank(outBank) && !isEmptyKitBank(outBank)) {
-                        outBank++;
-                    }
-                    int outPtr = outBank * RomUtilities.BANK_SIZE;
-                    for (int i = 0; i < RomUtilities.BANK_SIZE; i++) {
-                        romImage[outPtr++] = inBuf[i];
-                    }
-                    copiedBankCount++;
+            for (byte[] inBuf : kitBanks) {
+                if (copiedBankCount == kitSlots.length) {
+                    break;
                 }
+                int outBank = kitSlots[copiedBankCount];
+                romImage.set(outBank * RomUtilities.BANK_SIZE, inBuf, 0, RomUtilities.BANK_SIZE);
+                previewCache.invalidate(outBank);
+                copiedBankCount++;
             }
             updateRomView();
-            in.close();
             return copiedBankCount;
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, e.getMessage(), "File error",
@@ -729,25 +809,29 @@ public class KitEditor extends JFrame {
     private void importKits_actionPerformed() {
         File f = importRomSelect();
         if (f != null) {
-            int amountOfCopiedKits = importKits(f);
-            JOptionPane.showMessageDialog(this,
-                    "Imported " + amountOfCopiedKits + " kits!",
-                    "Kit import result.", JOptionPane.INFORMATION_MESSAGE);
+            readImportSource(f, source -> {
+                int amountOfCopiedKits = importKits(source.kitBanks);
+                JOptionPane.showMessageDialog(this,
+                        "Imported " + amountOfCopiedKits + " kits!",
+                        "Kit import result.", JOptionPane.INFORMATION_MESSAGE);
+            });
         }
     }
 
     private void importFonts_actionPerformed() {
         File f = importRomSelect();
         if (f != null) {
-            if (importFonts(f)) {
-                JOptionPane.showMessageDialog(this,
-                        "Font copied!",
-                        "Font import result.", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Font copy error.",
-                        "Font import result.", JOptionPane.INFORMATION_MESSAGE);
-            }
+            readImportSource(f, source -> {
+                if (importFonts(source.romImage)) {
+                    JOptionPane.showMessageDialog(this,
+                            "Font copied!",
+                            "Font import result.", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "Font copy error.",
+                            "Font import result.", JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
         }
 
     }
@@ -755,42 +839,48 @@ public class KitEditor extends JFrame {
     private void importPalettes_actionPerformed() {
         File f = importRomSelect();
         if (f != null) {
-            if (importPalettes(f)) {
-                JOptionPane.showMessageDialog(this,
-                        "Palettes copied!",
-                        "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Palette copy error.",
-                        "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
-            }
+            readImportSource(f, source -> {
+                if (importPalettes(source.romImage)) {
+                    JOptionPane.showMessageDialog(this,
+                            "Palettes copied!",
+                            "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "Palette copy error.",
+                            "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
         }
     }
 
 
     private void importAll_actionPerformed() {
         File f = importRomSelect();
-        boolean isOk = f != null;
-        if (isOk) {
-            // TODO : factorize message dialogs.
-            if (importKits(f) == 0) {
-                JOptionPane.showMessageDialog(this,
-                        "Palette copy error.",
-                        "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
-                isOk = false;
-            }
-            if (!importFonts(f)) {
-                JOptionPane.showMessageDialog(this,
-                        "Font copy error.",
-                        "Font import result.", JOptionPane.INFORMATION_MESSAGE);
-                isOk = false;
-            }
-            if (!importPalettes(f)) {
-                JOptionPane.showMessageDialog(this,
-                        "Palette copy error.",
-                        "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
-                isOk = false;
-            }
+        if (f != null) {
+            readImportSource(f, this::importAll);
+        }
+    }
+
+    private void importAll(ImportSource source) {
+        boolean isOk = true;
+        // TODO : factorize message dialogs.
+        if (importKits(source.kitBanks) == 0) {
+            JOptionPane.showMessageDialog(this,
+                    "Palette copy error.",
+                    "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
+            isOk = false;
+        }
+        if (!importFonts(source.romImage)) {
+            JOptionPane.showMessageDialog(this,
+                    "Font copy error.",
+                    "Font import result.", JOptionPane.INFORMATION_MESSAGE);
+            isOk = false;
+        }
+        if (!importPalettes(source.romImage)) {
+            JOptionPane.showMessageDialog(this,
+                    "Palette copy error.",
+                    "Palette import result.", JOptionPane.INFORMATION_MESSAGE);
+            isOk = false;
         }
 
         if (isOk) {
@@ -805,19 +895,29 @@ public class KitEditor extends JFrame {
 
         int result = chooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
+            File f = chooser.getSelectedFile();
+            JFileChooserFactory.recordNewBaseFolder(f.getParent());
+            // The checksum is updated and the image copied here: the palette and font editors keep editing it
+            // while the task writes the copy. A half-written ROM is worse than none, so saving can't be cancelled.
+            RomUtilities.updateChecksum(romImage);
+            RomImage.PendingSave save;
             try {
-                File f = chooser.getSelectedFile();
-                JFileChooserFactory.recordNewBaseFolder(f.getParent());
-
-                RomUtilities.fixChecksum(romImage);
-                romFile = new RandomAccessFile(f, "rw");
-                romFile.write(romImage);
-                romFile.close();
-                setTitle(f.getAbsoluteFile().toString() + " - lsdpatch.LSDPatcher Redux v" + LSDPatcher.getVersion());
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, e.getMessage(), "File error",
-                        JOptionPane.ERROR_MESSAGE);
+                save = romImage.prepareSave(f);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(contentPane, e.getMessage(), "File error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            taskRunner.run("Saving " + f.getName() + "...", false, progress -> {
+                save.write();
+                return f;
+            }, file -> {
+                save.finish();
+                setTitle(file.getAbsoluteFile().toString() + " - lsdpatch.LSDPatcher Redux v"
+                        + LSDPatcher.getVersion());
+            }, e -> {
+                save.abort();
+                JOptionPane.showMessageDialog(contentPane, e.getMessage(), "File error", JOptionPane.ERROR_MESSAGE);
+            });
         }
     }
 
@@ -834,9 +934,7 @@ public class KitEditor extends JFrame {
                 int offset = getROMOffsetForSelectedBank();
                 RandomAccessFile bankFile = new RandomAccessFile(f, "rw");
 
-                for (int i = 0; i < buf.length; i++) {
-                    buf[i] = romImage[offset++];
-                }
+                romImage.get(offset, buf, 0, buf.length);
                 bankFile.write(buf);
                 bankFile.close();
             } catch (Exception e) {
@@ -849,8 +947,8 @@ public class KitEditor extends JFrame {
     }
 
     private void eraseKitButton_actionPerformed() {
-        int romOffset = getROMOffsetForSelectedBank();
-        Arrays.fill(romImage,  romOffset, romOffset + RomUtilities.BANK_SIZE, (byte) -1);
+        getSelectedKit().erase();
+        previewCache.invalidate(getSelectedROMBank());
         updateBankView();
         updateRomView();
     }
@@ -863,9 +961,8 @@ public class KitEditor extends JFrame {
             RandomAccessFile bankFile = new RandomAccessFile(kitFile, "r");
             bankFile.readFully(buf);
 
-            for (byte aBuf : buf) {
-                romImage[offset++] = aBuf;
-            }
+            romImage.set(offset, buf, 0, buf.length);
+            previewCache.invalidate(getSelectedROMBank());
             bankFile.close();
             flushWavFiles();
             createSamplesFromRom();
@@ -898,26 +995,8 @@ public class KitEditor extends JFrame {
     }
 
     private void createKit() {
-        //clear all bank
-        int offset = getROMOffsetForSelectedBank() + 2;
-        int max_offset = getROMOffsetForSelectedBank() + RomUtilities.BANK_SIZE;
-        while (offset < max_offset) {
-            romImage[offset++] = 0;
-        }
-
-        //clear kit name
-        offset = getROMOffsetForSelectedBank() + 0x52;
-        for (int i = 0; i < 6; i++) {
-            romImage[offset++] = ' ';
-        }
-
-        //clear instrument names
-        offset = getROMOffsetForSelectedBank() + 0x22;
-        for (int i = 0; i < 15; i++) {
-            romImage[offset++] = 0;
-            romImage[offset++] = '-';
-            romImage[offset++] = '-';
-        }
+        getSelectedKit().clear();
+        previewCache.invalidate(getSelectedROMBank());
 
         flushWavFiles();
 
@@ -929,17 +1008,8 @@ public class KitEditor extends JFrame {
     }
 
     private void renameKitButton_actionPerformed() {
-        int offset = getROMOffsetForSelectedBank() + 0x52;
-        String s = kitTextArea.getText().toUpperCase();
-        for (int i = 0; i < 6; i++) {
-            if (i < s.length()) {
-                romImage[offset++] = (byte) s.charAt(i);
-            } else {
-                romImage[offset++] = ' ';
-            }
-        }
-        compileKit();
-        updateRomView();
+        getSelectedKit().setName(kitTextArea.getText());
+        compileKit(this::updateRomView);
     }
 
     private int firstFreeSampleSlot() {
@@ -951,39 +1021,61 @@ public class KitEditor extends JFrame {
         return -1;
     }
 
-    private void addSample(File wavFile) {
-        if (isEmptyKitBank(getSelectedROMBank())) {
-            createKit();
-        }
-        if (firstFreeSampleSlot() == -1) {
-            JOptionPane.showMessageDialog(contentPane,
-                    "Can't add sample, kit is full!",
-                    "Kit full",
-                    JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        int offset = getROMOffsetForSelectedBank() + 0x22 +
-                firstFreeSampleSlot() * 3;
-        String s = dropExtension(wavFile).toUpperCase();
+    // A dropped or selected file, decoded or failed.
+    private static class DecodedSample {
+        final File file;
+        final Sample sample;
+        final String error;
 
-        for (int i = 0; i < 3; ++i) {
-            if (i < s.length()) {
-                romImage[offset] = (byte) s.charAt(i);
-            } else {
-                romImage[offset] = '-';
-            }
-
-            offset++;
+        DecodedSample(File file, Sample sample, String error) {
+            this.file = file;
+            this.sample = sample;
+            this.error = error;
         }
+    }
 
-        Sample sample = Sample.createFromWav(wavFile);
-        if (sample == null) {
-            return;
-        }
-        samples[firstFreeSampleSlot()] = sample;
-
-        compileKit();
-        updateRomView();
+    // Decodes the files in parallel, then adds them to the kit in order with a single compile.
+    private void addSamples(List<File> wavFiles) {
+        Resampler.Quality quality = resampleQualityToggle.isSelected()
+                ? Resampler.Quality.HIGH : Resampler.Quality.FAST;
+        taskRunner.run("Importing " + wavFiles.size() + " samples...", true, progress -> {
+            AtomicInteger decodedCount = new AtomicInteger();
+            return wavFiles.parallelStream().map(wavFile -> {
+                if (progress.isCancelled()) {
+                    return null;
+                }
+                try {
+                    return new DecodedSample(wavFile, Sample.createFromWav(wavFile, quality), null);
+                } catch (IOException e) {
+                    return new DecodedSample(wavFile, null, e.getMessage());
+                } finally {
+                    progress.update(100 * decodedCount.incrementAndGet() / wavFiles.size());
+                }
+            }).collect(Collectors.toList());
+        }, decoded -> {
+            StringBuilder errors = new StringBuilder();
+            if (isEmptyKitBank(getSelectedROMBank())) {
+                createKit();
+            }
+            for (DecodedSample result : decoded) {
+                if (result.sample == null) {
+                    errors.append(result.file.getName()).append(": ").append(result.error).append('\n');
+                    continue;
+                }
+                int slot = firstFreeSampleSlot();
+                if (slot == -1) {
+                    errors.append("Can't add ").append(result.file.getName()).append(", kit is full!\n");
+                    continue;
+                }
+                getSelectedKit().setSampleName(slot, dropExtension(result.file));
+                samples[slot] = result.sample;
+            }
+            if (errors.length() > 0) {
+                JOptionPane.showMessageDialog(contentPane, errors.toString().trim(), "File error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+            compileKit(this::updateRomView);
+        });
     }
 
     private void selectSampleToAdd() {
@@ -992,47 +1084,126 @@ public class KitEditor extends JFrame {
         dialog.setFilenameFilter(new WavFileFilter());
         dialog.setVisible(true);
         if (dialog.getFile() != null) {
-            addSample(new File(dialog.getDirectory(), dialog.getFile()));
+            addSamples(Collections.singletonList(new File(dialog.getDirectory(), dialog.getFile())));
         }
     }
 
-    private void compileKit() {
+    // Compiles in the background, then runs whenDone.
+    private void compileKit(Runnable whenDone) {
         updateBankView();
-        if (totSampleSize > 0x3fa0) {
-            kitSizeLabel.setText(Integer.toHexString(totSampleSize) + "/3fa0 bytes used");
+        if (totSampleSize > KitBank.MAX_SAMPLE_DATA_SIZE) {
+            kitSizeLabel.setText(Integer.toHexString(totSampleSize) + "/"
+                    + Integer.toHexString(KitBank.MAX_SAMPLE_DATA_SIZE) + " bytes used");
+            whenDone.run();
             return;
         }
         kitSizeLabel.setText(Integer.toHexString(totSampleSize) + " bytes written");
-        sbc.DITHER_VAL = ditherSlider.getValue();
-
-        byte[] newSamples = new byte[RomUtilities.BANK_SIZE];
-        int[] lengths = new int[15];
-        sbc.handle(newSamples, samples, lengths);
-
-        //copy sampledata to ROM image
-        int offset = getROMOffsetForSelectedBank() + 0x60;
-        int offset2 = 0x60;
-        System.arraycopy(newSamples, offset2, romImage, offset, RomUtilities.BANK_SIZE - offset2);
-
-        //update samplelength info in rom image
-        int bankOffset = 0x4060;
-        offset = getROMOffsetForSelectedBank();
-        romImage[offset++] = 0x60;
-        romImage[offset++] = 0x40;
-        for (int i = 0; i < 15; i++) {
-            bankOffset += lengths[i];
-            if (lengths[i] != 0) {
-                romImage[offset++] = (byte) (bankOffset & 0xff);
-                romImage[offset++] = (byte) (bankOffset >> 8);
-            } else {
-                romImage[offset++] = 0;
-                romImage[offset++] = 0;
+
+        int romBank = getSelectedROMBank();
+        int offset = getROMOffsetForSelectedBank();
+        byte[] bank = new byte[RomUtilities.BANK_SIZE];
+        romImage.get(offset, bank, 0, bank.length);
+        Sample[] kitSamples = samples.clone();
+        taskRunner.run("Compiling kit...", false, progress -> {
+            KitBuilder.compile(KitBank.wrap(bank), kitSamples);
+            return bank;
+        }, compiled -> {
+            romImage.set(offset, compiled, 0, compiled.length);
+            previewCache.invalidate(romBank);
+            whenDone.run();
+        });
+    }
+
+    // The samples trimmed to fit the kit, or if that cuts too much, split over several kits.
+    private static class FittedKit {
+        final Sample[] fitted;
+        final List<Sample[]> kits;
+
+        FittedKit(Sample[] fitted, List<Sample[]> kits) {
+            this.fitted = fitted;
+            this.kits = kits;
+        }
+    }
+
+    private void fitKit() {
+        Sample[] kitSamples = samples.clone();
+        taskRunner.run("Fitting kit...", false, progress -> {
+            Sample[] fitted = KitBuilder.fit(kitSamples, KitBank.MAX_SAMPLE_DATA_SIZE);
+            return new FittedKit(fitted,
+                    fitted == null ? KitBuilder.split(kitSamples, KitBank.MAX_SAMPLE_DATA_SIZE) : null);
+        }, fittedKit -> {
+            if (fittedKit.fitted == null) {
+                splitKit(fittedKit.kits);
+                return;
+            }
+            samples = fittedKit.fitted;
+            compileKit(this::updateRomView);
+        });
+    }
+
+    // Keeps the samples that fit in the selected kit and moves the others, in order, to new kits in empty banks.
+    private void splitKit(List<Sample[]> kits) {
+        List<Integer> emptyBanks = new ArrayList<>();
+        for (int bank : kitDirectory) {
+            if (isEmptyKitBank(bank)) {
+                emptyBanks.add(bank);
             }
         }
+        if (kits.size() - 1 > emptyBanks.size()) {
+            JOptionPane.showMessageDialog(contentPane,
+                    "Samples would have to be cut by more than half to fit, and there are not enough empty kits "
+                            + "to split them over. Drop some samples instead.",
+                    "Kit full",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (JOptionPane.showConfirmDialog(contentPane,
+                "Samples would have to be cut by more than half to fit. Move the samples that don't fit to "
+                        + (kits.size() - 1) + " new kit(s) instead?",
+                "Kit full",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
 
-        // Resets forced loop data.
-        romImage[getROMOffsetForSelectedBank() + 0x5c] = 0;
-        romImage[getROMOffsetForSelectedBank() + 0x5d] = 0;
+        // Splitting keeps the samples in order, so the n-th sample left goes with the n-th name.
+        KitBank kit = getSelectedKit();
+        List<String> sampleNames = new ArrayList<>();
+        for (int i = 0; i < samples.length; ++i) {
+            if (samples[i] != null) {
+                sampleNames.add(kit.getSampleName(i));
+            }
+        }
+        String kitName = kit.getName().trim();
+        int nameIndex = kits.get(0).length;
+        List<Sample[]> newKits = kits.subList(1, kits.size());
+        List<String[]> newKitNames = new ArrayList<>();
+        for (Sample[] newKit : newKits) {
+            newKitNames.add(sampleNames.subList(nameIndex, nameIndex + newKit.length).toArray(new String[0]));
+            nameIndex += newKit.length;
+        }
+        taskRunner.run("Splitting kit...", false, progress -> {
+            List<byte[]> banks = new ArrayList<>();
+            for (int i = 0; i < newKits.size(); ++i) {
+                banks.add(KitBuilder.buildKit(KitBuilder.numberedKitName(kitName, i + 2), newKits.get(i),
+                        newKitNames.get(i)));
+            }
+            return banks;
+        }, banks -> {
+            for (int i = 0; i < banks.size(); ++i) {
+                int bank = emptyBanks.get(i);
+                romImage.set(bank * RomUtilities.BANK_SIZE, banks.get(i), 0, RomUtilities.BANK_SIZE);
+                previewCache.invalidate(bank);
+            }
+            samples = Arrays.copyOf(kits.get(0), KitBank.MAX_SAMPLES);
+            for (int i = 0; i < KitBank.MAX_SAMPLES; ++i) {
+                if (i < kits.get(0).length) {
+                    kit.setSampleName(i, sampleNames.get(i));
+                } else {
+                    kit.clearSampleName(i);
+                }
+            }
+            compileKit(this::updateRomView);
+        });
     }
 
     private void dropSample() {
@@ -1046,17 +1217,8 @@ public class KitEditor extends JFrame {
                 if (14 - index >= 0) System.arraycopy(samples, index + 1, samples, index, 14 - index);
                 samples[14] = null;
 
-                // Moves up instr names.
-                int offset = getROMOffsetForSelectedBank() + 0x22 + index * 3;
-                int i;
-                for (i = offset; i < getROMOffsetForSelectedBank() + 0x22 + 14 * 3; i += 3) {
-                    romImage[i] = romImage[i + 3];
-                    romImage[i + 1] = romImage[i + 4];
-                    romImage[i + 2] = romImage[i + 5];
-                }
-                romImage[i] = 0;
-                romImage[i + 1] = '-';
-                romImage[i + 2] = '-';
+                // Moves up instr names, the sample data being compiled again below.
+                getSelectedKit().dropSample(index);
 
                 // Adjusts indices.
                 for (int indexIt2 = indexIt + 1; indexIt2 < indices.length; ++indexIt2) {
@@ -1064,8 +1226,7 @@ public class KitEditor extends JFrame {
                 }
         }
 
-        compileKit();
-        updateBankView();
+        compileKit(this::updateBankView);
     }
 
     // TODO : put this in a factory eventually
@@ -0,0 +1,88 @@
+package kitEditor;
+
+/**
+ * Renders packed 4-bit samples, played by LSDj at 11468 Hz, to unsigned 8-bit 48 kHz for previews.
+ * <p>
+ * Output samples are stepped through the nibbles with a 32.32 fixed-point phase accumulator. The Game Boy plays
+ * its wave RAM 32 nibbles at a time, and the first nibble after each reload comes out at zero DC, which is
+ * reproduced here.
+ */
+final class NibbleUpsampler {
+    enum Interpolation {
+        // Holds each nibble, as the hardware does.
+        NONE,
+        LINEAR,
+        // Windowed sinc, 8 taps.
+        BAND_LIMITED
+    }
+
+    static final int OUTPUT_RATE = 48000;
+    private static final int NIBBLE_RATE = 11468;
+    private static final long STEP = ((long) NIBBLE_RATE << 32) / OUTPUT_RATE;
+
+    private static final int WAVE_RAM_NIBBLES = 32;
+    // Played while the wave RAM is reloaded.
+    private static final int ZERO_DC_LEVEL = 0x78;
+    // Played outside of the sample.
+    private static final int SILENCE_LEVEL = 0x80;
+
+    private static final int HALF_TAPS = 4;
+    private static final int PHASE_BITS = 8;
+    private static final float[][] FILTERS = Resampler.buildFilters(HALF_TAPS, 1 << PHASE_BITS, 0.9, 6.0);
+
+    private NibbleUpsampler() {
+    }
+
+    static int outputLength(int byteCount) {
+        return (int) ((long) byteCount * 2 * OUTPUT_RATE / NIBBLE_RATE);
+    }
+
+    /**
+     * Renders the packed nibbles into dst, which must hold at least outputLength(gbSample.length) bytes.
+     *
+     * @return the number of bytes written.
+     */
+    static int render(byte[] gbSample, byte[] dst, Interpolation interpolation) {
+        int length = outputLength(gbSample.length);
+        long phase = 0;
+        for (int i = 0; i < length; ++i) {
+            int nibble = (int) (phase >>> 32);
+            int fraction = (int) (phase >>> 16) & 0xffff;
+            int value;
+            switch (interpolation) {
+                case LINEAR: {
+                    int current = level(gbSample, nibble);
+                    value = current + ((level(gbSample, nibble + 1) - current) * fraction >> 16);
+                    break;
+                }
+                case BAND_LIMITED: {
+                    float[] filter = FILTERS[(fraction + (1 << (15 - PHASE_BITS))) >> (16 - PHASE_BITS)];
+                    float acc = 0;
+                    for (int tap = 0; tap < filter.length; ++tap) {
+                        acc += filter[tap] * level(gbSample, nibble - HALF_TAPS + 1 + tap);
+                    }
+                    value = Math.max(0, Math.min(0xff, Math.round(acc)));
+                    break;
+                }
+                default:
+                    value = level(gbSample, nibble);
+                    break;
+            }
+            dst[i] = (byte) value;
+            phase += STEP;
+        }
+        return length;
+    }
+
+    // Unsigned 8-bit level of a nibble, as played.
+    private static int level(byte[] gbSample, int nibble) {
+        if (nibble < 0 || nibble >= gbSample.length * 2) {
+            return SILENCE_LEVEL;
+        }
+        if (nibble % WAVE_RAM_NIBBLES == 0) {
+            return ZERO_DC_LEVEL;
+        }
+        byte packed = gbSample[nibble >> 1];
+        return (nibble & 1) == 0 ? packed & 0xf0 : (packed & 0xf) << 4;
+    }
+}
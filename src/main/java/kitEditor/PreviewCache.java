@@ -0,0 +1,58 @@
+package kitEditor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used sample previews, already rendered to 48 kHz, so that clicking through a kit doesn't render
+ * the same samples again and again.
+ * <p>
+ * Previews are keyed by bank, sample index, playback speed and whether the hardware is emulated. Whatever writes
+ * into a kit bank must invalidate it.
+ */
+class PreviewCache {
+    private static final int MAX_BYTES = 16 << 20;
+
+    private final LinkedHashMap<Integer, byte[]> previews = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+
+    private static int key(int bank, int index, boolean halfSpeed, boolean hardware) {
+        return bank << 8 | index << 2 | (hardware ? 2 : 0) | (halfSpeed ? 1 : 0);
+    }
+
+    byte[] get(int bank, int index, boolean halfSpeed, boolean hardware) {
+        return previews.get(key(bank, index, halfSpeed, hardware));
+    }
+
+    void put(int bank, int index, boolean halfSpeed, boolean hardware, byte[] waveData) {
+        byte[] previous = previews.put(key(bank, index, halfSpeed, hardware), waveData);
+        if (previous != null) {
+            size -= previous.length;
+        }
+        size += waveData.length;
+
+        // The newest preview is always kept, however large.
+        Iterator<byte[]> iterator = previews.values().iterator();
+        while (size > MAX_BYTES && previews.size() > 1) {
+            size -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    void invalidate(int bank) {
+        Iterator<Map.Entry<Integer, byte[]>> iterator = previews.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, byte[]> entry = iterator.next();
+            if (entry.getKey() >> 8 == bank) {
+                size -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        previews.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,137 @@
+package kitEditor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming polyphase windowed-sinc resampler, fed one input sample at a time.
+ * <p>
+ * The filter is a Kaiser-windowed sinc whose cutoff follows the lower of both Nyquist frequencies, tabulated for
+ * a fixed number of fractional positions (phases). Each output sample uses the phase closest to its position.
+ * The tables only depend on the rates and quality, so they are built once and shared between imports. Feeding
+ * samples never allocates.
+ */
+class Resampler {
+    enum Quality {
+        // 4 zero crossings on each side, 64 phases.
+        FAST(4, 64, 0.90, 5.0),
+        // 16 zero crossings on each side, 512 phases.
+        HIGH(16, 512, 0.95, 9.0);
+
+        private final int zeroCrossings;
+        private final int phases;
+        private final double rolloff;
+        private final double kaiserBeta;
+
+        Quality(int zeroCrossings, int phases, double rolloff, double kaiserBeta) {
+            this.zeroCrossings = zeroCrossings;
+            this.phases = phases;
+            this.rolloff = rolloff;
+            this.kaiserBeta = kaiserBeta;
+        }
+    }
+
+    private static final Map<String, float[][]> filterCache = new ConcurrentHashMap<>();
+
+    private final int inRate;
+    private final int outRate;
+    private final int phases;
+    private final int halfTaps;
+    // One row of 2 * halfTaps coefficients per phase, plus one for a position falling on the next input sample.
+    private final float[][] filters;
+    // Last input samples, stored twice in a row so that a window of them never wraps around.
+    private final float[] history;
+    private int historyPos;
+    private long inputCount;
+    // Next output position, in input samples: center + remainder / outRate.
+    private long center;
+    private long remainder;
+
+    Resampler(int inRate, int outRate, Quality quality) {
+        this.inRate = inRate;
+        this.outRate = outRate;
+        phases = quality.phases;
+        double cutoff = Math.min(1.0, (double) outRate / inRate) * quality.rolloff;
+        halfTaps = (int) Math.ceil(quality.zeroCrossings / cutoff);
+        filters = filterCache.computeIfAbsent(inRate + ":" + outRate + ":" + quality,
+                key -> buildFilters(halfTaps, phases, cutoff, quality.kaiserBeta));
+        history = new float[4 * halfTaps];
+    }
+
+    /**
+     * Feeds one input sample, in signed 8-bit units, and writes out every output sample it completes.
+     *
+     * @return the write position after the written samples.
+     */
+    int process(float sample, byte[] out, int writePos) {
+        int taps = 2 * halfTaps;
+        history[historyPos] = sample;
+        history[historyPos + taps] = sample;
+        historyPos = historyPos + 1 == taps ? 0 : historyPos + 1;
+        ++inputCount;
+
+        // The window ends halfTaps samples after the output position.
+        while (writePos < out.length && center + halfTaps < inputCount) {
+            int phase = (int) ((remainder * phases + outRate / 2) / outRate);
+            float[] filter = filters[phase];
+            float acc = 0;
+            for (int i = 0; i < taps; ++i) {
+                acc += filter[i] * history[historyPos + i];
+            }
+            out[writePos++] = (byte) Math.max(-128, Math.min(127, Math.round(acc)));
+
+            remainder += inRate;
+            center += remainder / outRate;
+            remainder %= outRate;
+        }
+        return writePos;
+    }
+
+    /**
+     * Feeds silence until the output samples waiting on input past the end are written.
+     */
+    int flush(byte[] out, int writePos) {
+        for (int i = 0; i < halfTaps; ++i) {
+            writePos = process(0, out, writePos);
+        }
+        return writePos;
+    }
+
+    static float[][] buildFilters(int halfTaps, int phases, double cutoff, double beta) {
+        float[][] filters = new float[phases + 1][2 * halfTaps];
+        double windowNorm = besselI0(beta);
+        for (int phase = 0; phase <= phases; ++phase) {
+            double fraction = (double) phase / phases;
+            double sum = 0;
+            double[] row = new double[2 * halfTaps];
+            for (int tap = 0; tap < row.length; ++tap) {
+                // Distance between this tap's input sample and the output position.
+                double x = tap - halfTaps + 1 - fraction;
+                double t = x / halfTaps;
+                double window = Math.abs(t) >= 1 ? 0 : besselI0(beta * Math.sqrt(1 - t * t)) / windowNorm;
+                double arg = Math.PI * cutoff * x;
+                double sinc = x == 0 ? 1 : Math.sin(arg) / arg;
+                row[tap] = sinc * window;
+                sum += row[tap];
+            }
+            // Unity gain at DC for every phase.
+            for (int tap = 0; tap < row.length; ++tap) {
+                filters[phase][tap] = (float) (row[tap] / sum);
+            }
+        }
+        return filters;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        for (int k = 1; k < 50; ++k) {
+            term *= (x / (2 * k)) * (x / (2 * k));
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+}
@@ -19,15 +19,28 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
 THE SOFTWARE. */
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import javax.swing.*;
 
 class Sample {
+    private static final int FADE_LENGTH = 64;
+
     private final String name;
     private final byte[] buf;
-    private int readPos;
+    // Edits may shorten the sample within buf.
+    private int length;
+    // Dither applied when compiled to 4 bits, in percents of a full TPDF dither.
+    private int dither;
+    // Nibbles from the last compile and the parameters they were packed with, dropped by edits.
+    private byte[] packed;
+    private int packedDither;
+    private int packedSeed;
 
     private Sample(byte[] iBuf, String iName) {
         buf = iBuf;
+        length = iBuf.length;
         name = iName;
     }
 
@@ -36,218 +49,127 @@ class Sample {
     }
 
     int length() {
-        return buf.length;
+        return length;
     }
 
-    void seekStart() {
-        readPos = 0;
+    int getDither() {
+        return dither;
     }
 
-    int read() {
-        int val = buf[readPos++];
-        // Converts from signed to unsigned 8-bit.
-        val += 0x80;
-        return val;
+    void setDither(int dither) {
+        this.dither = dither;
     }
 
-    // ------------------
-
-    static Sample createFromNibbles(byte[] nibbles, String name) {
-        byte[] buf = new byte[nibbles.length * 2];
-        for (int nibbleIt = 0; nibbleIt < nibbles.length; ++nibbleIt) {
-            buf[2 * nibbleIt] = (byte) (nibbles[nibbleIt] & 0xf0);
-            buf[2 * nibbleIt + 1] = (byte) ((nibbles[nibbleIt] & 0xf) << 4);
+    // Copy keeping the first length samples, faded out at the end to avoid a click.
+    Sample trimmed(int length) {
+        byte[] trimmedBuf = Arrays.copyOf(buf, length);
+        int fadeLength = Math.min(FADE_LENGTH, length);
+        for (int i = 0; i < fadeLength; ++i) {
+            int pos = length - fadeLength + i;
+            trimmedBuf[pos] = (byte) (trimmedBuf[pos] * (fadeLength - i) / (fadeLength + 1));
         }
-        for (int bufIt = 0; bufIt < buf.length; ++bufIt) {
-            buf[bufIt] -= 0x80;
-        }
-        return new Sample(buf, name);
+        Sample sample = new Sample(trimmedBuf, name);
+        sample.dither = dither;
+        return sample;
     }
 
-    // ------------------
-
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    static Sample createFromWav(File file) {
-        int ch = 0;
-        long sampleRate = 0;
-        int bits = 0;
-
-        try {
-            FileInputStream in = new FileInputStream(file.getAbsolutePath());
-
-            long riffId = readWord(in);
-            if (riffId != 1380533830) {
-                JOptionPane.showMessageDialog(null,
-                        "Missing RIFF id!",
-                        "Format error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
-
-            readWord(in); //skip file size
-
-            long waveId = readWord(in);
-            if (waveId != 1463899717) {
-                JOptionPane.showMessageDialog(null,
-                        "Missing WAVE id!",
-                        "Format error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
-
-            while (in.available() != 0) {
-                long chunkId = readWord(in);
-                long chunkSize = readEndianWord(in);
-
-                if (chunkId == 0x666D7420) // fmt
-                {
-                    int compression = readEndianShort(in);
-                    if (compression != 1) {
-                        JOptionPane.showMessageDialog(null,
-                                "kitEditor.Sample is compressed. Only PCM .wav files are supported.",
-                                "Format error",
-                                JOptionPane.ERROR_MESSAGE);
-                        return null;
-                    }
-                    ch = readEndianShort(in);
-                    if (ch > 2) {
-                        JOptionPane.showMessageDialog(null,
-                                "Unsupported number of channels!",
-                                "Format error",
-                                JOptionPane.ERROR_MESSAGE);
-                        return null;
-                    }
-                    sampleRate = readEndianWord(in);
-                    readWord(in); //avg. bytes/second
-                    readEndianShort(in);  // Block align.
-                    bits = readEndianShort(in);
-                    if (bits != 16 && bits != 8) {
-                        JOptionPane.showMessageDialog(null,
-                                "Only 8-bit and 16-bit .wav are supported!",
-                                "Format error",
-                                JOptionPane.ERROR_MESSAGE);
-                        return null;
-                    }
-                } else if (chunkId == 0x64617461) // data
-                {
-                    byte[] buf = new byte[(int) chunkSize];
-                    in.read(buf);
-
-                    if (ch == 2) {
-                        int inIt = 0;
-                        int outIt = 0;
-                        while (inIt < chunkSize) {
-                            buf[outIt++] = buf[inIt++];
-                            buf[outIt++] = buf[inIt++];
-                            inIt += 2;
-                        }
-                        chunkSize /= 2;
-                        //noinspection UnusedAssignment
-                        ch = 1;
-                    }
-
-                    if (bits == 16) {
-                        // Convert from signed 16-bit to signed 8-bit
-                        // by simply taking the most significant byte.
-                        int inIt = 1;
-                        int outIt = 0;
-
-                        while (inIt < chunkSize) {
-                            buf[outIt] = buf[inIt];
-                            outIt++;
-                            inIt += 2;
-                        }
-                        chunkSize /= 2;
-                    } else if (bits == 8) {
-                        // Converts unsigned 8-bit to signed 8-bit.
-                        for (int it = 0; it < chunkSize; ++it) {
-                            buf[it] += 128;
-                        }
-                    }
-
-                    int outFreq = 11468;
-                    int outFrames = (int) ((outFreq * chunkSize) / sampleRate);
-
-                    double readPos = 0.0;
-                    double advance = (double) sampleRate / (double) outFreq;
-
-                    byte[] outBuf = new byte[outFrames];
-                    int writePos = 0;
-
-                    while (writePos < outFrames) {
-                        byte val = buf[(int) readPos];
-                        outBuf[writePos++] = val;
-                        readPos += advance;
-                    }
+    // Signed 8-bit samples, not to be modified. Only the first length() are part of the sample.
+    byte[] getData() {
+        return buf;
+    }
 
-                    return new Sample(outBuf, file.getName());
-                } else {
-                    in.skip(chunkSize);
-                }
+    /**
+     * The whole blocks of the sample packed into nibbles, as compiled into a kit. Packing is redone only once the
+     * sample is edited or the dither changes, or for a dithered sample, the seed.
+     */
+    synchronized byte[] getPacked(int ditherSeed) {
+        int seed = dither == 0 ? 0 : ditherSeed;
+        if (packed == null || packedDither != dither || packedSeed != seed) {
+            int blocks = length / sbc.BLOCK_LENGTH;
+            packed = new byte[blocks * sbc.BLOCK_LENGTH / 2];
+            if (dither == 0) {
+                sbc.pack(buf, 0, blocks, packed, 0);
+            } else {
+                sbc.packDithered(buf, blocks, dither / 100f, seed, packed, 0);
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, e.getMessage(), "File error",
-                    JOptionPane.ERROR_MESSAGE);
+            packedDither = dither;
+            packedSeed = seed;
         }
-        return null;
+        return packed;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    static private long readWord(FileInputStream in) throws IOException {
-        long ret = 0;
-        byte[] word = new byte[4];
-        in.read(word);
-
-        ret += word[0];
-        ret <<= 8;
-
-        ret += word[1];
-        ret <<= 8;
-
-        ret += word[2];
-        ret <<= 8;
-
-        ret += word[3];
+    // ------------------
+    // Edits, in place on the samples from start to end, exclusive.
 
-        return ret;
+    // Keeps only the samples from start to end.
+    void trim(int start, int end) {
+        System.arraycopy(buf, start, buf, 0, end - start);
+        length = end - start;
+        packed = null;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    static private int readEndianShort(FileInputStream in) throws IOException {
-        int ret = 0;
-        byte[] word = new byte[2];
-        in.read(word);
-
-        ret += signedToUnsigned(word[1]);
-        ret <<= 8;
-        ret += signedToUnsigned(word[0]);
-
-        return ret;
+    // Scales the samples so that the loudest one reaches full scale.
+    void normalize(int start, int end) {
+        int peak = 0;
+        for (int i = start; i < end; ++i) {
+            peak = Math.max(peak, Math.abs(buf[i]));
+        }
+        if (peak == 0) {
+            return;
+        }
+        float gain = 127f / peak;
+        for (int i = start; i < end; ++i) {
+            buf[i] = (byte) Math.max(-128, Math.min(127, Math.round(buf[i] * gain)));
+        }
+        packed = null;
     }
 
-    static private int signedToUnsigned(byte b) {
-        if (b >= 0) {
-            return b;
+    void fadeIn(int start, int end) {
+        int fadeLength = end - start;
+        for (int i = start; i < end; ++i) {
+            buf[i] = (byte) (buf[i] * (i - start) / fadeLength);
         }
-        return 0x100 + b;
+        packed = null;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    static private long readEndianWord(FileInputStream in) throws IOException {
-        long ret = 0;
-        byte[] word = new byte[4];
-        in.read(word);
+    void fadeOut(int start, int end) {
+        int fadeLength = end - start;
+        for (int i = start; i < end; ++i) {
+            buf[i] = (byte) (buf[i] * (end - 1 - i) / fadeLength);
+        }
+        packed = null;
+    }
 
-        ret += signedToUnsigned(word[3]);
-        ret <<= 8;
+    // ------------------
 
-        ret += signedToUnsigned(word[2]);
-        ret <<= 8;
+    static Sample createFromNibbles(byte[] nibbles, String name) {
+        byte[] buf = new byte[nibbles.length * 2];
+        for (int nibbleIt = 0; nibbleIt < nibbles.length; ++nibbleIt) {
+            buf[2 * nibbleIt] = (byte) (nibbles[nibbleIt] & 0xf0);
+            buf[2 * nibbleIt + 1] = (byte) ((nibbles[nibbleIt] & 0xf) << 4);
+        }
+        for (int bufIt = 0; bufIt < buf.length; ++bufIt) {
+            buf[bufIt] -= 0x80;
+        }
+        Sample sample = new Sample(buf, name);
+        if (buf.length % sbc.BLOCK_LENGTH == 0) {
+            // Packing the undithered sample gives back the same nibbles.
+            sample.packed = nibbles.clone();
+        }
+        return sample;
+    }
 
-        ret += signedToUnsigned(word[1]);
-        ret <<= 8;
+    // Signed 8-bit samples at 11468 Hz, copied as edits work in place.
+    static Sample createFromData(byte[] data, String name) {
+        return new Sample(data.clone(), name);
+    }
 
-        ret += signedToUnsigned(word[0]);
+    // ------------------
 
-        return ret;
+    static Sample createFromWav(File file, Resampler.Quality quality) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new Sample(new WavDecoder(channel, quality).decode(), file.getName());
+        }
     }
 
     // ------------------
@@ -256,8 +178,8 @@ class Sample {
         try {
             RandomAccessFile wavFile = new RandomAccessFile(f, "rw");
 
-            int payloadSize = buf.length;
-            int fileSize = buf.length + 0x2c;
+            int payloadSize = length;
+            int fileSize = length + 0x2c;
             int waveSize = fileSize - 8;
 
             byte[] header = {
@@ -286,8 +208,8 @@ class Sample {
 
             wavFile.write(header);
 
-            byte[] unsigned = new byte[buf.length];
-            for (int it = 0; it < buf.length; ++it) {
+            byte[] unsigned = new byte[length];
+            for (int it = 0; it < length; ++it) {
                 unsigned[it] = (byte) ((int) buf[it] + 0x80);
             }
             wavFile.write(unsigned);
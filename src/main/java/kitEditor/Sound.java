@@ -20,92 +20,152 @@ package kitEditor;/*
   THE SOFTWARE.
  */
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.sound.sampled.*;
 
+/**
+ * Sample previews, mixed by a single thread into one long-lived line.
+ * <p>
+ * A fixed set of voices play the rendered samples. Triggering a sample while every voice is busy steals the voice
+ * that started first. The mixer writes small blocks so that previews start right away, and sleeps while there's
+ * nothing to play. Nothing is allocated per preview besides the rendered sample itself.
+ */
 public class Sound {
 
-    private static final ArrayList<Clip> previousClips = new ArrayList<>();
-
-    private static final long WAV_SAMPLE_RATE = 48000L;
-    private static final long LSDJ_SAMPLE_RATE = 11468L;
-
-    private static byte[] preProcessNibblesIntoWaveData(byte[] gbSample) {
-        long numSamples = ((long)gbSample.length * WAV_SAMPLE_RATE);
-        long numNibblePairsToWrite = (numSamples/LSDJ_SAMPLE_RATE)*2L;
-
-        byte[] upsampledData = new byte[(int) (numNibblePairsToWrite * 2L)];
-
-        for (int i = 0; i < upsampledData.length/2; i++) {
-            double ratio = i / (double) (upsampledData.length/2);
+    private static final int VOICE_COUNT = 8;
+    // About 5 ms at 48 kHz.
+    private static final int BLOCK_FRAMES = 256;
+    private static final int LINE_BUFFER_BLOCKS = 4;
 
+    private static class Voice {
+        byte[] data;
+        int position;
+        int gain;
+        long triggerOrder;
+    }
 
-            int sampleIndex = (int) (ratio * gbSample.length);
-            int nibble = (int) (ratio * gbSample.length * 2.) % 2;
-            byte sample = gbSample[sampleIndex];
-            if (nibble == 0)
-                upsampledData[i] = (byte) (0xf0 & sample);
-            else
-                upsampledData[i] = (byte) ((0x0F & sample) << 4);
-
+    private static final Object lock = new Object();
+    private static final Voice[] voices = new Voice[VOICE_COUNT];
+    private static long triggerCount;
+    private static SourceDataLine line;
 
-            // Emulates Game Boy sound chip bug. While changing waveform,
-            // sound is played back at zero DC. This happens every 32'nd sample.
-            if (sampleIndex % 32 == 0) {
-                upsampledData[i] = 0x78;
-            }
-        }
-        for (int i = upsampledData.length/2; i < upsampledData.length; ++i) {
-            upsampledData[i] = -128;
+    static {
+        for (int i = 0; i < VOICE_COUNT; ++i) {
+            voices[i] = new Voice();
         }
+    }
+
+    static byte[] preProcessNibblesIntoWaveData(byte[] gbSample) {
+        byte[] upsampledData = new byte[NibbleUpsampler.outputLength(gbSample.length)];
+        NibbleUpsampler.render(gbSample, upsampledData, NibbleUpsampler.Interpolation.NONE);
         return upsampledData;
     }
 
-    private static Clip getFirstAvailableClip() throws LineUnavailableException {
-        boolean found = false;
-        Clip selected = null;
-        for (Clip clip : previousClips) {
-            if (!clip.isRunning() && !found)
-            {
-                clip.stop();
-                clip.flush();
-                clip.close();
-                selected = clip;
-                found = true;
-            }
-            else if (clip.getLongFramePosition() > clip.getFrameLength()/2) {
-                clip.stop();
-                clip.flush();
-                clip.close();
-            }
+    /**
+     * Renders the nibbles through the wave channel model, to the same format as preProcessNibblesIntoWaveData.
+     */
+    static byte[] renderHardwarePreview(byte[] gbSample) {
+        float[] analog = new float[WaveChannel.outputLength(gbSample.length)];
+        WaveChannel.render(gbSample, WaveChannel.Volume.FULL, WaveChannel.Model.DMG, analog);
+        byte[] upsampledData = new byte[analog.length];
+        for (int i = 0; i < analog.length; ++i) {
+            // Full scale matches the range of plain nibbles, the high-pass overshoot is clipped.
+            upsampledData[i] = (byte) Math.max(0, Math.min(0xff, 0x78 + Math.round(analog[i] * 0x78)));
         }
-        Clip newClip = selected == null ? AudioSystem.getClip() : selected;
-        previousClips.add(newClip);
-        return newClip;
+        return upsampledData;
     }
 
     /**
-     * Plays 4-bit packed Game Boy sample. Returns unpacked data.
+     * Plays a sample already rendered by preProcessNibblesIntoWaveData, mixed with the ones already playing.
      *
      * @throws LineUnavailableException
      */
     @SuppressWarnings("JavaDoc")
-    static void play(byte[] gbSample, float volume) throws LineUnavailableException {
-        AudioFormat upsampledFormat = new AudioFormat(48000, 8, 1, false, false);
-        byte[] upsampledData = preProcessNibblesIntoWaveData(gbSample);
-//        byte data[] = new byte[gbSample.length * 2];
-//        for (int i = 0; i < gbSample.length; ++i) {
-//            data[i * 2] = (byte) (0xf0 & gbSample[i]);
-//            data[i * 2 + 1] = (byte) ((0xf & gbSample[i]) << 4);
-//        }
-
-        // Play it!
-        Clip clip = getFirstAvailableClip();
-        clip.open(upsampledFormat, upsampledData, 0, upsampledData.length);
-        FloatControl control = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-        float result = 20f * (float) Math.log10(volume);
-        control.setValue(result);
-        clip.start();
+    static void playWaveData(byte[] upsampledData, float volume) throws LineUnavailableException {
+        synchronized (lock) {
+            startMixer();
+            Voice voice = voices[0];
+            for (Voice candidate : voices) {
+                if (candidate.data == null) {
+                    voice = candidate;
+                    break;
+                }
+                if (candidate.triggerOrder < voice.triggerOrder) {
+                    voice = candidate;
+                }
+            }
+            voice.data = upsampledData;
+            voice.position = 0;
+            // 8.8 fixed point.
+            voice.gain = Math.round(volume * 256);
+            voice.triggerOrder = ++triggerCount;
+            lock.notifyAll();
+        }
+    }
+
+    // Opens the line on the first preview, so that a missing audio device is reported to the caller.
+    private static void startMixer() throws LineUnavailableException {
+        if (line != null) {
+            return;
+        }
+        AudioFormat format = new AudioFormat(NibbleUpsampler.OUTPUT_RATE, 16, 1, true, false);
+        SourceDataLine newLine = AudioSystem.getSourceDataLine(format);
+        newLine.open(format, BLOCK_FRAMES * 2 * LINE_BUFFER_BLOCKS);
+        newLine.start();
+        line = newLine;
+
+        Thread mixer = new Thread(Sound::mix, "Sample preview mixer");
+        mixer.setDaemon(true);
+        mixer.start();
+    }
+
+    private static boolean isPlaying() {
+        for (Voice voice : voices) {
+            if (voice.data != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void mix() {
+        int[] mixBuffer = new int[BLOCK_FRAMES];
+        byte[] block = new byte[BLOCK_FRAMES * 2];
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (!isPlaying()) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                Arrays.fill(mixBuffer, 0);
+                for (Voice voice : voices) {
+                    if (voice.data == null) {
+                        continue;
+                    }
+                    int frames = Math.min(BLOCK_FRAMES, voice.data.length - voice.position);
+                    for (int i = 0; i < frames; ++i) {
+                        // Unsigned 8-bit to signed 16-bit, through the 8.8 gain.
+                        mixBuffer[i] += ((voice.data[voice.position + i] & 0xff) - 0x80) * voice.gain;
+                    }
+                    voice.position += frames;
+                    if (voice.position == voice.data.length) {
+                        voice.data = null;
+                    }
+                }
+            }
+
+            for (int i = 0; i < BLOCK_FRAMES; ++i) {
+                int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+                block[2 * i] = (byte) value;
+                block[2 * i + 1] = (byte) (value >> 8);
+            }
+            // Blocks until the line has room, which paces the mixer.
+            line.write(block, 0, block.length);
+        }
     }
 }
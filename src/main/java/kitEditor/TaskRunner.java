@@ -0,0 +1,171 @@
+package kitEditor;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.swing.*;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Runs the kit editor's slow operations, file I/O and compilation, in order and one at a time off the event
+ * dispatch thread.
+ * <p>
+ * While tasks are queued, the window is covered by its glass pane, which swallows mouse input, and key input to
+ * the window is dropped, so that the user can't touch the kit editor until they are done. Tasks that take a while
+ * get a progress bar and, if they can be cancelled, a cancel button. Cancellation is cooperative: the task is
+ * expected to check for it and stop early. Cancelling drops the results of every queued task.
+ * <p>
+ * Results and errors are handed back on the event dispatch thread, once the task has really returned, so tasks
+ * should leave shared state alone and let their callbacks apply their results. That includes reading the ROM
+ * image: the palette and font editors are other windows, still usable while tasks run, so tasks work on copies
+ * taken on the event dispatch thread.
+ */
+class TaskRunner {
+    interface Progress {
+        // Percents done, calling it switches the progress bar from indeterminate.
+        void update(int percent);
+
+        boolean isCancelled();
+    }
+
+    interface Task<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    // Delay before showing progress, so that quick tasks don't flicker.
+    private static final int PROGRESS_DELAY_MS = 250;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Kit editor task");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JRootPane rootPane;
+    private final JPanel glassPane = new JPanel();
+    private final JPanel progressPanel = new JPanel();
+    private final JLabel descriptionLabel = new JLabel();
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton cancelButton = new JButton("Cancel");
+    private final Timer progressTimer = new Timer(PROGRESS_DELAY_MS, e -> progressPanel.setVisible(true));
+
+    private final KeyEventDispatcher keyBlocker = this::blockKey;
+
+    // Queued tasks, including the running one.
+    private int pending;
+    private volatile boolean cancelled;
+
+    TaskRunner(JRootPane rootPane) {
+        this.rootPane = rootPane;
+        progressTimer.setRepeats(false);
+
+        progressPanel.setLayout(new MigLayout("", "[250:,grow,fill]", ""));
+        progressPanel.setBorder(BorderFactory.createEtchedBorder());
+        progressPanel.add(descriptionLabel, "wrap");
+        progressPanel.add(progressBar, "wrap");
+        progressPanel.add(cancelButton, "align right");
+        cancelButton.addActionListener(e -> {
+            cancelled = true;
+            cancelButton.setEnabled(false);
+        });
+
+        glassPane.setOpaque(false);
+        glassPane.setLayout(new MigLayout("", "push[]push", "push[]push"));
+        glassPane.add(progressPanel);
+        glassPane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        // Swallows mouse input meant for the window below.
+        glassPane.addMouseListener(new MouseAdapter() {
+        });
+        glassPane.addMouseMotionListener(new MouseAdapter() {
+        });
+        glassPane.addMouseWheelListener(e -> {
+        });
+    }
+
+    // Drops key events meant for the window, other than those for the cancel button. The glass pane only
+    // catches mouse events, and keys would still reach the focused component and the menu shortcuts.
+    private boolean blockKey(KeyEvent e) {
+        Component target = e.getComponent();
+        return target != null && target != cancelButton
+                && SwingUtilities.getRoot(target) == SwingUtilities.getRoot(rootPane);
+    }
+
+    /**
+     * Runs a task, reporting failures in an error dialog.
+     */
+    <T> void run(String description, boolean cancellable, Task<T> task, Consumer<T> onSuccess) {
+        run(description, cancellable, task, onSuccess, e -> JOptionPane.showMessageDialog(rootPane,
+                e.getMessage(), "File error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    /**
+     * Queues a task. Must be called on the event dispatch thread, onSuccess and onFailure are called on it too.
+     * Neither is called if the task is cancelled.
+     */
+    <T> void run(String description, boolean cancellable, Task<T> task, Consumer<T> onSuccess,
+                 Consumer<Exception> onFailure) {
+        if (pending++ == 0) {
+            cancelled = false;
+            progressPanel.setVisible(false);
+            rootPane.setGlassPane(glassPane);
+            glassPane.setVisible(true);
+            KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(keyBlocker);
+            progressTimer.restart();
+        }
+
+        Progress progress = new Progress() {
+            @Override
+            public void update(int percent) {
+                SwingUtilities.invokeLater(() -> {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue(percent);
+                });
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        };
+
+        executor.execute(() -> {
+            SwingUtilities.invokeLater(() -> {
+                descriptionLabel.setText(description);
+                progressBar.setIndeterminate(true);
+                cancelButton.setVisible(cancellable);
+                cancelButton.setEnabled(!cancelled);
+            });
+            T result = null;
+            Exception failure = null;
+            try {
+                result = task.run(progress);
+            } catch (Exception e) {
+                failure = e;
+            }
+            T finalResult = result;
+            Exception finalFailure = failure;
+            SwingUtilities.invokeLater(() -> {
+                if (!cancelled) {
+                    if (finalFailure != null) {
+                        onFailure.accept(finalFailure);
+                    } else {
+                        onSuccess.accept(finalResult);
+                    }
+                }
+                if (--pending == 0) {
+                    progressTimer.stop();
+                    glassPane.setVisible(false);
+                    KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(keyBlocker);
+                }
+            });
+        });
+    }
+}
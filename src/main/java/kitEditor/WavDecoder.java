@@ -0,0 +1,248 @@
+package kitEditor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Decodes a .wav into the signed 8-bit mono 11468 Hz samples kits are made of.
+ * <p>
+ * The source is read through a fixed-size buffer and converted as the buffer fills up, so that only the decoded
+ * output, a fraction of the source's size, is ever held in memory. Integer PCM of 8 to 32 bits and 32 or 64-bit
+ * IEEE float are supported, plain or as WAVE_FORMAT_EXTENSIBLE, with any number of channels.
+ * <p>
+ * Conversion goes a block of frames at a time through flat loops: sample format to float, then averaging downmix,
+ * then a {@link Resampler} of the requested quality.
+ */
+class WavDecoder {
+    static final int OUTPUT_RATE = 11468;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int RIFF_ID = 0x52494646;
+    private static final int WAVE_ID = 0x57415645;
+    private static final int FMT_ID = 0x666D7420;
+    private static final int DATA_ID = 0x64617461;
+    private static final int FMT_SIZE = 16;
+    private static final int EXTENSIBLE_FMT_SIZE = 40;
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int BLOCK_FRAMES = 1024;
+
+    private final ReadableByteChannel channel;
+    private final Resampler.Quality quality;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean endOfStream;
+
+    private int channels;
+    private int sampleRate;
+    private int bits;
+    private boolean isFloat;
+
+    WavDecoder(ReadableByteChannel channel, Resampler.Quality quality) {
+        this.channel = channel;
+        this.quality = quality;
+        buffer.flip();
+    }
+
+    byte[] decode() throws IOException {
+        if (!fill(12) || readId() != RIFF_ID) {
+            throw new IOException("Missing RIFF id!");
+        }
+        buffer.getInt(); // File size.
+        if (readId() != WAVE_ID) {
+            throw new IOException("Missing WAVE id!");
+        }
+
+        while (fill(8)) {
+            int chunkId = readId();
+            long chunkSize = buffer.getInt() & 0xffffffffL;
+
+            if (chunkId == FMT_ID) {
+                readFormat(chunkSize);
+            } else if (chunkId == DATA_ID) {
+                if (channels == 0) {
+                    throw new IOException("Missing fmt chunk!");
+                }
+                return readData(chunkSize);
+            } else {
+                skip(chunkSize);
+            }
+            // Chunks are word-aligned.
+            skip(chunkSize & 1);
+        }
+        throw new IOException("Missing data chunk!");
+    }
+
+    private void readFormat(long chunkSize) throws IOException {
+        if (chunkSize < FMT_SIZE || !fill(FMT_SIZE)) {
+            throw new EOFException("Truncated fmt chunk!");
+        }
+        int format = buffer.getShort() & 0xffff;
+        channels = buffer.getShort() & 0xffff;
+        sampleRate = buffer.getInt();
+        buffer.getInt(); // Avg. bytes/second.
+        int blockAlign = buffer.getShort() & 0xffff;
+        bits = buffer.getShort() & 0xffff;
+        long read = FMT_SIZE;
+
+        if (format == FORMAT_EXTENSIBLE) {
+            if (chunkSize < EXTENSIBLE_FMT_SIZE || !fill(EXTENSIBLE_FMT_SIZE - FMT_SIZE)) {
+                throw new EOFException("Truncated fmt chunk!");
+            }
+            buffer.getShort(); // Extension size.
+            buffer.getShort(); // Valid bits, the samples are left-aligned in their container anyway.
+            buffer.getInt(); // Channel mask.
+            // The sub-format GUID starts with the format code.
+            format = buffer.getShort() & 0xffff;
+            buffer.position(buffer.position() + 14);
+            read = EXTENSIBLE_FMT_SIZE;
+        }
+
+        if (format == FORMAT_PCM) {
+            isFloat = false;
+            if (bits != 8 && bits != 16 && bits != 24 && bits != 32) {
+                throw new IOException("Only 8, 16, 24 and 32-bit PCM .wav are supported!");
+            }
+        } else if (format == FORMAT_IEEE_FLOAT) {
+            isFloat = true;
+            if (bits != 32 && bits != 64) {
+                throw new IOException("Only 32 and 64-bit float .wav are supported!");
+            }
+        } else {
+            throw new IOException("Sample is compressed. Only PCM and float .wav files are supported.");
+        }
+        if (channels == 0) {
+            throw new IOException("Unsupported number of channels!");
+        }
+        if (blockAlign != channels * bits / 8) {
+            throw new IOException("Unsupported block alignment!");
+        }
+        if (sampleRate <= 0) {
+            throw new IOException("Invalid sample rate!");
+        }
+        skip(chunkSize - read);
+    }
+
+    private byte[] readData(long chunkSize) throws IOException {
+        int frameSize = channels * bits / 8;
+        long frames = chunkSize / frameSize;
+        long outFrames = OUTPUT_RATE * frames / sampleRate;
+        if (outFrames > Integer.MAX_VALUE) {
+            throw new IOException("Sample is too long!");
+        }
+
+        byte[] outBuf = new byte[(int) outFrames];
+        int writePos = 0;
+        Resampler resampler = new Resampler(sampleRate, OUTPUT_RATE, quality);
+        float[] samples = new float[BLOCK_FRAMES * channels];
+        float[] mono = new float[BLOCK_FRAMES];
+
+        while (frames > 0 && writePos < outBuf.length) {
+            if (!fill(frameSize)) {
+                // Truncated file, keeps what could be read.
+                break;
+            }
+            int blockFrames = (int) Math.min(Math.min(frames, BLOCK_FRAMES), buffer.remaining() / frameSize);
+            convert(samples, blockFrames * channels);
+            downmix(samples, mono, blockFrames);
+            for (int i = 0; i < blockFrames; ++i) {
+                writePos = resampler.process(mono[i], outBuf, writePos);
+            }
+            frames -= blockFrames;
+        }
+        writePos = resampler.flush(outBuf, writePos);
+        return writePos == outBuf.length ? outBuf : Arrays.copyOf(outBuf, writePos);
+    }
+
+    // Reads count interleaved samples from the buffer, in signed 8-bit units.
+    private void convert(float[] dst, int count) {
+        int position = buffer.position();
+        if (isFloat && bits == 64) {
+            for (int i = 0; i < count; ++i) {
+                dst[i] = (float) (buffer.getDouble(position + i * 8) * 128);
+            }
+        } else if (isFloat) {
+            for (int i = 0; i < count; ++i) {
+                dst[i] = buffer.getFloat(position + i * 4) * 128;
+            }
+        } else if (bits == 32) {
+            for (int i = 0; i < count; ++i) {
+                dst[i] = buffer.getInt(position + i * 4) * (1f / (1 << 24));
+            }
+        } else if (bits == 24) {
+            for (int i = 0; i < count; ++i) {
+                int offset = position + i * 3;
+                int value = (buffer.get(offset) & 0xff) | (buffer.get(offset + 1) & 0xff) << 8
+                        | buffer.get(offset + 2) << 16;
+                dst[i] = value * (1f / (1 << 16));
+            }
+        } else if (bits == 16) {
+            for (int i = 0; i < count; ++i) {
+                dst[i] = buffer.getShort(position + i * 2) * (1f / (1 << 8));
+            }
+        } else {
+            // 8-bit is unsigned.
+            for (int i = 0; i < count; ++i) {
+                dst[i] = (buffer.get(position + i) & 0xff) - 128;
+            }
+        }
+        buffer.position(position + count * bits / 8);
+    }
+
+    private void downmix(float[] samples, float[] mono, int frames) {
+        if (channels == 1) {
+            System.arraycopy(samples, 0, mono, 0, frames);
+            return;
+        }
+        float scale = 1f / channels;
+        for (int frame = 0; frame < frames; ++frame) {
+            float sum = 0;
+            int offset = frame * channels;
+            for (int channel = 0; channel < channels; ++channel) {
+                sum += samples[offset + channel];
+            }
+            mono[frame] = sum * scale;
+        }
+    }
+
+    private int readId() {
+        return Integer.reverseBytes(buffer.getInt());
+    }
+
+    // Makes sure that at least count bytes are buffered, returns false if the stream ends before.
+    private boolean fill(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < count && !endOfStream) {
+            endOfStream = channel.read(buffer) == -1;
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+
+    private void skip(long count) throws IOException {
+        int buffered = (int) Math.min(count, buffer.remaining());
+        buffer.position(buffer.position() + buffered);
+        count -= buffered;
+        if (count == 0) {
+            return;
+        }
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel seekableChannel = (SeekableByteChannel) channel;
+            seekableChannel.position(seekableChannel.position() + count);
+            return;
+        }
+        while (count > 0 && fill(1)) {
+            buffered = (int) Math.min(count, buffer.remaining());
+            buffer.position(buffer.position() + buffered);
+            count -= buffered;
+        }
+    }
+}
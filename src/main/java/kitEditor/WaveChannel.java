@@ -0,0 +1,91 @@
+package kitEditor;
+
+/**
+ * Offline model of the Game Boy wave channel playing a sample the way LSDj does, for previews close to what the
+ * hardware outputs.
+ * <p>
+ * LSDj streams a sample through the 32 nibbles of wave RAM. Each reload turns the DAC off while the RAM is
+ * written, so the first nibble of every reload comes out at zero DC. Nibbles go through the volume shift and the
+ * DAC, which maps 0 to 15 onto +1 to -1, then through the high-pass filter formed by the output capacitor. The
+ * filter is a one-pole charge factor per output sample, taken from the factor per CPU clock of each model.
+ */
+final class WaveChannel {
+    enum Model {
+        DMG(0.999958),
+        CGB(0.998943);
+
+        private final double chargeFactorPerClock;
+
+        Model(double chargeFactorPerClock) {
+            this.chargeFactorPerClock = chargeFactorPerClock;
+        }
+    }
+
+    // Output level codes of NR32.
+    enum Volume {
+        MUTE(4),
+        FULL(0),
+        HALF(1),
+        QUARTER(2);
+
+        private final int shift;
+
+        Volume(int shift) {
+            this.shift = shift;
+        }
+    }
+
+    static final int OUTPUT_RATE = NibbleUpsampler.OUTPUT_RATE;
+    private static final int CPU_CLOCK = 4194304;
+    private static final int NIBBLE_RATE = 11468;
+    private static final long STEP = ((long) NIBBLE_RATE << 32) / OUTPUT_RATE;
+    private static final int WAVE_RAM_NIBBLES = 32;
+
+    private WaveChannel() {
+    }
+
+    static int outputLength(int byteCount) {
+        return NibbleUpsampler.outputLength(byteCount);
+    }
+
+    /**
+     * Renders the packed nibbles into dst as analog output, between -1 and 1 before the high-pass. dst must hold
+     * at least outputLength(gbSample.length) samples.
+     *
+     * @return the number of samples written.
+     */
+    static int render(byte[] gbSample, Volume volume, Model model, float[] dst) {
+        // DAC output for every nibble value, after the volume shift.
+        float[] levels = new float[16];
+        for (int nibble = 0; nibble < levels.length; ++nibble) {
+            levels[nibble] = 1 - (nibble >> volume.shift) / 7.5f;
+        }
+        float charge = (float) Math.pow(model.chargeFactorPerClock, (double) CPU_CLOCK / OUTPUT_RATE);
+
+        int length = outputLength(gbSample.length);
+        float capacitor = 0;
+        long phase = 0;
+        int i = 0;
+        while (i < length) {
+            int nibble = (int) (phase >>> 32);
+            // Output samples falling on this nibble.
+            long nextPhase = (long) (nibble + 1) << 32;
+            int end = (int) Math.min(length, i + (nextPhase - phase + STEP - 1) / STEP);
+            float in;
+            if (nibble % WAVE_RAM_NIBBLES == 0) {
+                // The DAC is off during the reload.
+                in = 0;
+            } else {
+                byte packed = gbSample[nibble >> 1];
+                in = levels[(nibble & 1) == 0 ? (packed >> 4) & 0xf : packed & 0xf];
+            }
+            for (; i < end; ++i) {
+                float out = in - capacitor;
+                capacitor = in - out * charge;
+                dst[i] = out;
+            }
+            phase = (long) end * STEP;
+        }
+        return length;
+    }
+}
@@ -1,5 +1,8 @@
 package kitEditor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Copyright (C) 2001-2011 by Johan Kotlinski
  * <p>
@@ -26,56 +29,82 @@ package kitEditor;
 
 class sbc {
 
-    static int DITHER_VAL = 0x8;
+    // Samples are packed by blocks of 32 nibbles.
+    static final int BLOCK_LENGTH = 32;
+
+    // Fixed seed, so that compiling the same kit always gives the same bank.
+    private static final int DITHER_SEED = 0x2545F491;
 
-    //outfile=dst, inSample=8bit unsigned sample 11468 kHz
-    public static void handle(byte dst[], Sample samples[], int byteLength[]) {
-        int offset = 0x60; //don't overwrite sample bank info!
+    // Signed 8-bit sample to its 4 most significant bits once unsigned, in the high and low halves of a byte.
+    private static final byte[] HIGH_NIBBLE = new byte[256];
+    private static final byte[] LOW_NIBBLE = new byte[256];
+
+    static {
+        for (int value = 0; value < 256; ++value) {
+            int nibble = ((byte) value + 0x80) >> 4;
+            HIGH_NIBBLE[value] = (byte) (nibble << 4);
+            LOW_NIBBLE[value] = (byte) nibble;
+        }
+    }
+
+    // Packs the samples of a kit, 8-bit signed at 11468 Hz, up to its first empty slot.
+    static List<byte[]> handle(Sample[] samples) {
+        List<byte[]> packedSamples = new ArrayList<>();
         for (int sampleIt = 0; sampleIt < samples.length; sampleIt++) {
             Sample sample = samples[sampleIt];
             if (sample == null) {
                 break;
             }
 
-            sample.seekStart();
-            int sampleLength = sample.length();
-            // Trims the end of the sample to make it a multiple of 0x10.
-            sampleLength -= sampleLength % 0x10;
-
-            int addedBytes = 0;
+            packedSamples.add(packSlot(sample, sampleIt));
+        }
+        return packedSamples;
+    }
 
-            int outputBuffer[] = new int[32];
-            int outputCounter = 0;
-            for (int i = 0; i < sampleLength; i++) {
-                outputBuffer[outputCounter] = sample.read();
-//                if (sample.mayDither()) {
-//                    outputBuffer[outputCounter] += Math.random() * DITHER_VAL - DITHER_VAL / 2;
-//                }
-                //outputBuffer[outputCounter]+=outputCounter%2*DITHER_VAL-DITHER_VAL/2;
-                //throw away 4 LSB
-                outputBuffer[outputCounter] /= 16;
+    // Packs a sample for the given kit slot. The end of the sample that doesn't fill a whole block is dropped.
+    // Dither is reseeded for each slot so that a sample doesn't depend on the ones before it.
+    static byte[] packSlot(Sample sample, int slot) {
+        return sample.getPacked(DITHER_SEED * (slot + 1));
+    }
 
-                /*
-                //this is to get middle at 7.5 instead of 8.0
-                outputBuffer[outputCounter]*=0xe;
-                outputBuffer[outputCounter]/=0xf;
-                */
+    /**
+     * Truncates blocks of signed 8-bit samples to 4 bits, packed two per byte, high nibble first.
+     */
+    static void pack(byte[] src, int srcOffset, int blocks, byte[] dst, int dstOffset) {
+        for (int block = 0; block < blocks; ++block) {
+            for (int i = 0; i < BLOCK_LENGTH; i += 2) {
+                dst[dstOffset++] = (byte) (HIGH_NIBBLE[src[srcOffset] & 0xff] | LOW_NIBBLE[src[srcOffset + 1] & 0xff]);
+                srcOffset += 2;
+            }
+        }
+    }
 
-                //range check
-                outputBuffer[outputCounter] = Math.min(0xf, outputBuffer[outputCounter]);
-                outputBuffer[outputCounter] = Math.max(0, outputBuffer[outputCounter]);
+    /**
+     * Same as {@link #pack}, but quantizes with triangular PDF dither of the given amount, 1 spanning +-1 4-bit
+     * step, and first-order error feedback pushing the noise up in frequency.
+     */
+    static void packDithered(byte[] src, int blocks, float dither, int seed, byte[] dst, int dstOffset) {
+        // xorshift32 state.
+        int random = seed;
+        float error = 0;
+        int length = blocks * BLOCK_LENGTH;
+        int high = 0;
+        for (int i = 0; i < length; i++) {
+            // Centered so that rounding matches truncation when there's no error or dither.
+            float target = (src[i] + 0x80 - 8) / 16f - error;
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            float noise = (random & 0xffff) - (random >>> 16);
+            int value = Math.round(target + noise * dither / 0x10000);
+            value = Math.min(0xf, Math.max(0, value));
+            error = Math.min(1, Math.max(-1, value - target));
 
-                if (outputCounter == 31) {
-                    for (int j = 0; j != 32; j += 2) {
-                        dst[offset++] = (byte) (outputBuffer[j] * 0x10 + outputBuffer[j + 1]);
-                    }
-                    outputCounter = -1;
-                    addedBytes += 0x10;
-                }
-                outputCounter++;
+            if ((i & 1) == 0) {
+                high = value << 4;
+            } else {
+                dst[dstOffset++] = (byte) (high | value);
             }
-
-            byteLength[sampleIt] = addedBytes;
         }
     }
 }
@@ -80,6 +80,10 @@ public class LSDPatcher {
         System.out.println("java -jar LSDJPatcher.jar clone <inRomFile> <outRomlFile>");
         System.out.println(" Clones all customizations from a ROM file to another.\n");
 
+        System.out.println("java -jar LSDJPatcher.jar buildkits <romFile> <kitsDirectory> [fast]");
+        System.out.println(" Compiles every folder of WAV files found under the directory into a kit, written into the");
+        System.out.println(" ROM's kit slots in folder path order. fast trades resampling quality for speed.\n");
+
     }
 
     public static void main(String[] args) {
@@ -136,6 +140,10 @@ public class LSDPatcher {
         } else if (command.compareTo("clone") == 0 && args.length == 3) {
             // -1 to allow 1-3 range instead of 0-2
             CommandLineFunctions.copyAllCustomizations(args[1], args[2]);
+        } else if (command.compareTo("buildkits") == 0 && args.length == 3) {
+            CommandLineFunctions.buildKits(args[1], args[2], true);
+        } else if (command.compareTo("buildkits") == 0 && args.length == 4 && args[3].equalsIgnoreCase("fast")) {
+            CommandLineFunctions.buildKits(args[1], args[2], false);
         }
 
         usage();
@@ -23,6 +23,7 @@ import java.awt.BorderLayout;
 import java.awt.event.KeyEvent;
 import java.io.File;
 
+import structures.RomImage;
 import utils.JFileChooserFactory;
 import utils.JFileChooserFactory.FileOperation;
 import utils.JFileChooserFactory.FileType;
@@ -48,7 +49,7 @@ public class PaletteEditor
         implements java.awt.event.ItemListener, ChangeListener, java.awt.event.ActionListener {
     private static final long serialVersionUID = 5286120830758415869L;
 
-    private byte romImage[] = null;
+    private RomImage romImage = null;
     private int paletteOffset = -1;
     private int nameOffset = -1;
 
@@ -418,7 +419,7 @@ public class PaletteEditor
         c5b2.addChangeListener(this);
     }
 
-    public void setRomImage(byte[] romImage) {
+    public void setRomImage(RomImage romImage) {
         this.romImage = romImage;
         paletteOffset = RomUtilities.findPaletteOffset(romImage);
         if (paletteOffset == -1) {
@@ -439,11 +440,11 @@ public class PaletteEditor
     }
 
     // Returns color scaled to 0-0xf8.
-    private java.awt.Color color(int offset) {
+    private static java.awt.Color color(RomImage romImage, int offset) {
         // gggrrrrr 0bbbbbgg
-        int r = (romImage[offset] & 0x1f) << 3;
-        int g = ((romImage[offset + 1] & 3) << 6) | ((romImage[offset] & 0xe0) >> 2);
-        int b = (romImage[offset + 1] << 1) & 0xf8;
+        int r = (romImage.get(offset) & 0x1f) << 3;
+        int g = ((romImage.get(offset + 1) & 3) << 6) | ((romImage.get(offset) & 0xe0) >> 2);
+        int b = (romImage.get(offset + 1) << 1) & 0xf8;
         return new java.awt.Color(r, g, b);
     }
 
@@ -458,23 +459,23 @@ public class PaletteEditor
         int g1 = (Integer) sg1.getValue();
         int b1 = (Integer) sb1.getValue();
         // gggrrrrr 0bbbbbgg
-        romImage[offset] = (byte) (r1 | (g1 << 5));
-        romImage[offset + 1] = (byte) ((g1 >> 3) | (b1 << 2));
+        romImage.set(offset, (byte) (r1 | (g1 << 5)));
+        romImage.set(offset + 1, (byte) ((g1 >> 3) | (b1 << 2)));
 
         int r2 = (Integer) sr2.getValue();
         int g2 = (Integer) sg2.getValue();
         int b2 = (Integer) sb2.getValue();
-        romImage[offset + 6] = (byte) (r2 | (g2 << 5));
-        romImage[offset + 7] = (byte) ((g2 >> 3) | (b2 << 2));
+        romImage.set(offset + 6, (byte) (r2 | (g2 << 5)));
+        romImage.set(offset + 7, (byte) ((g2 >> 3) | (b2 << 2)));
 
         // Generating antialiasing colors.
         int rMid = (r1 + r2) / 2;
         int gMid = (g1 + g2) / 2;
         int bMid = (b1 + b2) / 2;
-        romImage[offset + 2] = (byte) (rMid | (gMid << 5));
-        romImage[offset + 3] = (byte) ((gMid >> 3) | (bMid << 2));
-        romImage[offset + 4] = romImage[offset + 2];
-        romImage[offset + 5] = romImage[offset + 3];
+        romImage.set(offset + 2, (byte) (rMid | (gMid << 5)));
+        romImage.set(offset + 3, (byte) ((gMid >> 3) | (bMid << 2)));
+        romImage.set(offset + 4, romImage.get(offset + 2));
+        romImage.set(offset + 5, romImage.get(offset + 3));
     }
 
     private int selectedPaletteOffset() {
@@ -490,34 +491,46 @@ public class PaletteEditor
     }
 
     private java.awt.Color firstColor(int colorSet) {
+        return firstColor(romImage, selectedPaletteOffset(), colorSet);
+    }
+
+    private java.awt.Color secondColor(int colorSet) {
+        return secondColor(romImage, selectedPaletteOffset(), colorSet);
+    }
+
+    private java.awt.Color midColor(int colorSet) {
+        return midColor(romImage, selectedPaletteOffset(), colorSet);
+    }
+
+    private static java.awt.Color firstColor(RomImage romImage, int paletteOffset, int colorSet) {
         assert colorSet >= 0;
         assert colorSet < RomUtilities.NUM_COLOR_SETS;
-        int offset = selectedPaletteOffset() + colorSet * RomUtilities.COLOR_SET_SIZE;
-        return color(offset);
+        int offset = paletteOffset + colorSet * RomUtilities.COLOR_SET_SIZE;
+        return color(romImage, offset);
     }
 
-    private java.awt.Color secondColor(int colorSet) {
+    private static java.awt.Color secondColor(RomImage romImage, int paletteOffset, int colorSet) {
         assert colorSet >= 0;
         assert colorSet < RomUtilities.NUM_COLOR_SETS;
-        int offset = selectedPaletteOffset() + colorSet * RomUtilities.COLOR_SET_SIZE + 3 * 2;
-        return color(offset);
+        int offset = paletteOffset + colorSet * RomUtilities.COLOR_SET_SIZE + 3 * 2;
+        return color(romImage, offset);
     }
 
-    private java.awt.Color midColor(int colorSet) {
+    private static java.awt.Color midColor(RomImage romImage, int paletteOffset, int colorSet) {
         assert colorSet >= 0;
         assert colorSet < RomUtilities.NUM_COLOR_SETS;
-        int offset = selectedPaletteOffset() + colorSet * RomUtilities.COLOR_SET_SIZE + 2;
-        return color(offset);
+        int offset = paletteOffset + colorSet * RomUtilities.COLOR_SET_SIZE + 2;
+        return color(romImage, offset);
     }
 
     private String paletteName(int palette) {
         assert palette >= 0;
         assert palette < RomUtilities.getNumberOfPalettes(romImage);
         String s = "";
-        s += (char) romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE];
-        s += (char) romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 1];
-        s += (char) romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 2];
-        s += (char) romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 3];
+        s += (char) romImage.get(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE);
+        s += (char) romImage.get(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 1);
+        s += (char) romImage.get(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 2);
+        s += (char) romImage.get(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 3);
         return s;
     }
 
@@ -534,10 +547,10 @@ public class PaletteEditor
             }
             name = nameBuilder.toString();
         }
-        romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE] = (byte) name.charAt(0);
-        romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 1] = (byte) name.charAt(1);
-        romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 2] = (byte) name.charAt(2);
-        romImage[nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 3] = (byte) name.charAt(3);
+        romImage.set(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE, (byte) name.charAt(0));
+        romImage.set(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 1, (byte) name.charAt(1));
+        romImage.set(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 2, (byte) name.charAt(2));
+        romImage.set(nameOffset + palette * RomUtilities.PALETTE_NAME_SIZE + 3, (byte) name.charAt(3));
     }
 
     private void populatePaletteSelector() {
@@ -550,7 +563,7 @@ public class PaletteEditor
         populatingPaletteSelector = false;
     }
 
-    private int colorCorrect(java.awt.Color c) {
+    private static int colorCorrect(java.awt.Color c) {
         int r = ((c.getRed() >> 3) * 255) / 0xf8;
         int g = ((c.getGreen() >> 3) * 255) / 0xf8;
         int b = ((c.getBlue() >> 3) * 255) / 0xf8;
@@ -562,6 +575,12 @@ public class PaletteEditor
     }
 
     private java.awt.image.BufferedImage modifyUsingPalette(java.awt.image.BufferedImage srcImage) {
+        return modifyUsingPalette(srcImage, romImage, selectedPaletteOffset());
+    }
+
+    // Recolors a screenshot of the LSDj screens made with the placeholder colors below into the given palette.
+    static java.awt.image.BufferedImage modifyUsingPalette(java.awt.image.BufferedImage srcImage, RomImage romImage,
+                                                           int paletteOffset) {
         int w = srcImage.getWidth();
         int h = srcImage.getHeight();
         java.awt.image.BufferedImage dstImage = new java.awt.image.BufferedImage(w, h, java.awt.image.BufferedImage.TYPE_INT_RGB);
@@ -570,35 +589,35 @@ public class PaletteEditor
                 int rgb = srcImage.getRGB(x, y);
                 java.awt.Color c;
                 if (rgb == 0xff000000) {
-                    c = firstColor(0);
+                    c = firstColor(romImage, paletteOffset, 0);
                 } else if (rgb == 0xff000008) {
-                    c = midColor(0);
+                    c = midColor(romImage, paletteOffset, 0);
                 } else if (rgb == 0xff000019) {
-                    c = secondColor(0);
+                    c = secondColor(romImage, paletteOffset, 0);
                 } else if (rgb == 0xff000800) {
-                    c = firstColor(1);
+                    c = firstColor(romImage, paletteOffset, 1);
                 } else if (rgb == 0xff000808) {
-                    c = midColor(1);
+                    c = midColor(romImage, paletteOffset, 1);
                 } else if (rgb == 0xff000819) {
-                    c = secondColor(1);
+                    c = secondColor(romImage, paletteOffset, 1);
                 } else if (rgb == 0xff001000) {
-                    c = firstColor(2);
+                    c = firstColor(romImage, paletteOffset, 2);
                 } else if (rgb == 0xff001008) {
-                    c = midColor(2);
+                    c = midColor(romImage, paletteOffset, 2);
                 } else if (rgb == 0xff001019) {
-                    c = secondColor(2);
+                    c = secondColor(romImage, paletteOffset, 2);
                 } else if (rgb == 0xff001900) {
-                    c = firstColor(3);
+                    c = firstColor(romImage, paletteOffset, 3);
                 } else if (rgb == 0xff001908) {
-                    c = midColor(3);
+                    c = midColor(romImage, paletteOffset, 3);
                 } else if (rgb == 0xff001919) {
-                    c = secondColor(3);
+                    c = secondColor(romImage, paletteOffset, 3);
                 } else if (rgb == 0xff002100) {
-                    c = firstColor(4);
+                    c = firstColor(romImage, paletteOffset, 4);
                 } else if (rgb == 0xff002108) {
-                    c = midColor(4);
+                    c = midColor(romImage, paletteOffset, 4);
                 } else if (rgb == 0xff002119) {
-                    c = secondColor(4);
+                    c = secondColor(romImage, paletteOffset, 4);
                 } else {
                     System.err.println(String.format("%x", rgb));
                     c = new java.awt.Color(255, 0, 255);
@@ -698,7 +717,7 @@ public class PaletteEditor
             f.write(paletteName.charAt(2));
             f.write(paletteName.charAt(3));
             for (int i = selectedPaletteOffset(); i < selectedPaletteOffset() + RomUtilities.PALETTE_SIZE; ++i) {
-                f.write(romImage[i]);
+                f.write(romImage.get(i));
             }
             f.close();
         } catch (java.io.IOException e) {
@@ -716,7 +735,7 @@ public class PaletteEditor
             name += (char) f.read();
             setPaletteName(paletteSelector.getSelectedIndex(), name);
             for (int i = selectedPaletteOffset(); i < selectedPaletteOffset() + RomUtilities.PALETTE_SIZE; ++i) {
-                romImage[i] = (byte) f.read();
+                romImage.set(i, (byte) f.read());
             }
             f.close();
         } catch (java.io.IOException e) {
@@ -0,0 +1,58 @@
+package structures;
+
+import utils.RomUtilities;
+
+/**
+ * The fonts of a ROM image and their names.
+ * <p>
+ * Each font is a header followed by 2 bits per pixel Game Boy tiles. {@link LSDJFont} edits the pixels of a font
+ * but depends on AWT, this only moves whole fonts and names around.
+ */
+public class FontTable {
+    private final RomImage romImage;
+
+    FontTable(RomImage romImage) {
+        this.romImage = romImage;
+    }
+
+    public int size() {
+        return LSDJFont.FONT_COUNT;
+    }
+
+    public String getName(int font) {
+        checkIndex(font);
+        return RomUtilities.getFontName(romImage, font);
+    }
+
+    public void setName(int font, String name) {
+        checkIndex(font);
+        RomUtilities.setFontName(romImage, font, name);
+    }
+
+    /**
+     * The whole data of a font, header and every tile variant included.
+     */
+    public byte[] getFont(int font) {
+        byte[] data = new byte[LSDJFont.FONT_SIZE];
+        romImage.get(fontOffset(font), data, 0, data.length);
+        return data;
+    }
+
+    public void setFont(int font, byte[] data) {
+        if (data.length != LSDJFont.FONT_SIZE) {
+            throw new IllegalArgumentException("A font is " + LSDJFont.FONT_SIZE + " bytes long");
+        }
+        romImage.set(fontOffset(font), data, 0, data.length);
+    }
+
+    private void checkIndex(int font) {
+        if (font < 0 || font >= size()) {
+            throw new IndexOutOfBoundsException("No font " + font);
+        }
+    }
+
+    private int fontOffset(int font) {
+        checkIndex(font);
+        return romImage.getLayout().getFontOffset() + font * LSDJFont.FONT_SIZE;
+    }
+}
@@ -0,0 +1,262 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import utils.RomUtilities;
+
+/**
+ * A kit bank of a ROM image: up to 15 samples of packed 4-bit nibbles, with their names and the kit's name.
+ * <p>
+ * The bank starts with 16 little endian addresses bounding the samples, sample i playing from address i to
+ * address i + 1, followed by the sample names, the kit name and the sample data. Empty kit slots are filled with
+ * 0xff. Samples are handled here as they are stored, packed two nibbles per byte, so nothing gets quantized again.
+ * {@code kitEditor.KitBuilder.compile} packs new 8-bit samples into a kit bank.
+ */
+public class KitBank {
+    public static final int MAX_SAMPLES = 15;
+    public static final int MAX_SAMPLE_DATA_SIZE = 0x3fa0;
+    public static final int SAMPLE_NAME_LENGTH = 3;
+    public static final int KIT_NAME_LENGTH = 6;
+    private static final int SAMPLE_NAME_OFFSET = 0x22;
+    private static final int KIT_NAME_OFFSET = 0x52;
+    private static final int FORCE_LOOP_OFFSET = 0x5c;
+    private static final int SAMPLE_DATA_OFFSET = 0x60;
+    // Address of the sample data once the bank is switched in.
+    private static final int SAMPLE_DATA_ADDRESS = 0x4060;
+
+    private final RomImage romImage;
+    private final int bank;
+
+    KitBank(RomImage romImage, int bank) {
+        this.romImage = romImage;
+        this.bank = bank;
+    }
+
+    /**
+     * A kit bank held in an array of its own, such as a .kit file or a bank being built before it is copied into
+     * a ROM image. Edits go straight into the array.
+     */
+    public static KitBank wrap(byte[] data) {
+        if (data.length != RomUtilities.BANK_SIZE) {
+            throw new IllegalArgumentException("A kit is " + RomUtilities.BANK_SIZE + " bytes long");
+        }
+        return new KitBank(RomImage.wrap(data), 0);
+    }
+
+    // Banks holding either a kit or an empty kit slot, in ROM order.
+    static int[] findKitBanks(RomImage romImage) {
+        int kitBankCount = 0;
+        int[] kitBanks = new int[RomUtilities.BANK_COUNT];
+        for (int bank = 0; bank < RomUtilities.BANK_COUNT && bank < romImage.bankCount(); ++bank) {
+            KitBank kit = new KitBank(romImage, bank);
+            if (kit.isKit() || kit.isEmpty()) {
+                kitBanks[kitBankCount++] = bank;
+            }
+        }
+        return Arrays.copyOf(kitBanks, kitBankCount);
+    }
+
+    public int getBank() {
+        return bank;
+    }
+
+    private int offset() {
+        return bank * RomUtilities.BANK_SIZE;
+    }
+
+    public boolean isKit() {
+        return romImage.get(offset()) == 0x60 && romImage.get(offset() + 1) == 0x40;
+    }
+
+    public boolean isEmpty() {
+        return romImage.get(offset()) == -1 && romImage.get(offset() + 1) == -1;
+    }
+
+    public String getName() {
+        return readString(KIT_NAME_OFFSET, KIT_NAME_LENGTH);
+    }
+
+    public void setName(String name) {
+        writeString(KIT_NAME_OFFSET, KIT_NAME_LENGTH, name, ' ');
+    }
+
+    public String getSampleName(int index) {
+        return readString(SAMPLE_NAME_OFFSET + index * SAMPLE_NAME_LENGTH, SAMPLE_NAME_LENGTH);
+    }
+
+    public void setSampleName(int index, String name) {
+        writeString(SAMPLE_NAME_OFFSET + index * SAMPLE_NAME_LENGTH, SAMPLE_NAME_LENGTH, name, '-');
+    }
+
+    /**
+     * Marks a slot's name as unused, as LSDj does for slots without a sample.
+     */
+    public void clearSampleName(int index) {
+        int nameOffset = offset() + SAMPLE_NAME_OFFSET + index * SAMPLE_NAME_LENGTH;
+        romImage.set(nameOffset, (byte) 0);
+        romImage.set(nameOffset + 1, (byte) '-');
+        romImage.set(nameOffset + 2, (byte) '-');
+    }
+
+    /**
+     * The packed nibbles of a sample, or null if the slot is empty.
+     */
+    public byte[] getSampleNibbles(int index) {
+        int start = address(index);
+        int stop = address(index + 1);
+        if (stop <= start) {
+            return null;
+        }
+        byte[] nibbles = new byte[stop - start];
+        romImage.get(offset() - RomUtilities.BANK_SIZE + start, nibbles, 0, nibbles.length);
+        return nibbles;
+    }
+
+    /**
+     * Bytes of sample data in use.
+     */
+    public int getSampleDataSize() {
+        int size = 0;
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            size += Math.max(0, address(i + 1) - address(i));
+        }
+        return size;
+    }
+
+    /**
+     * Lays out packed samples back to back and updates the address table. Null or empty entries are empty slots
+     * and may only come after the last sample: a slot's end address is the next one's start, so an empty slot
+     * in between would cut the samples after it off. For the same reason, two slots can't point into the same
+     * data, even when their samples are identical. Names are left as they are and forced loops are reset.
+     *
+     * @throws IllegalArgumentException if the samples don't fit or there is an empty slot between them.
+     */
+    public void setSampleNibbles(List<byte[]> samples) {
+        if (samples.size() > MAX_SAMPLES) {
+            throw new IllegalArgumentException("A kit holds at most " + MAX_SAMPLES + " samples");
+        }
+        int size = 0;
+        boolean emptySlotSeen = false;
+        for (int i = 0; i < samples.size(); ++i) {
+            byte[] sample = samples.get(i);
+            if (sample == null || sample.length == 0) {
+                emptySlotSeen = true;
+            } else if (emptySlotSeen) {
+                throw new IllegalArgumentException("Sample " + i + " follows an empty slot");
+            } else {
+                size += sample.length;
+            }
+        }
+        if (size > MAX_SAMPLE_DATA_SIZE) {
+            throw new IllegalArgumentException("Samples take " + Integer.toHexString(size) + " bytes, only "
+                    + Integer.toHexString(MAX_SAMPLE_DATA_SIZE) + " fit in a kit");
+        }
+
+        byte[] data = new byte[RomUtilities.BANK_SIZE];
+        romImage.get(offset(), data, 0, data.length);
+        Arrays.fill(data, SAMPLE_DATA_OFFSET, data.length, (byte) 0);
+        int address = SAMPLE_DATA_ADDRESS;
+        data[0] = (byte) address;
+        data[1] = (byte) (address >> 8);
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            byte[] sample = i < samples.size() ? samples.get(i) : null;
+            int tableOffset = 2 + i * 2;
+            if (sample == null || sample.length == 0) {
+                data[tableOffset] = 0;
+                data[tableOffset + 1] = 0;
+                continue;
+            }
+            System.arraycopy(sample, 0, data, address - SAMPLE_DATA_ADDRESS + SAMPLE_DATA_OFFSET, sample.length);
+            address += sample.length;
+            data[tableOffset] = (byte) address;
+            data[tableOffset + 1] = (byte) (address >> 8);
+        }
+        data[FORCE_LOOP_OFFSET] = 0;
+        data[FORCE_LOOP_OFFSET + 1] = 0;
+        romImage.set(offset(), data, 0, data.length);
+    }
+
+    /**
+     * Removes a sample, moving the following ones and their names up.
+     */
+    public void dropSample(int index) {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            byte[] sample = getSampleNibbles(i);
+            if (sample == null) {
+                // The address table has no way to skip a slot, nothing after an empty one is played.
+                break;
+            }
+            if (i != index) {
+                samples.add(sample);
+            }
+        }
+        for (int i = index; i < MAX_SAMPLES - 1; ++i) {
+            int nameOffset = offset() + SAMPLE_NAME_OFFSET + i * SAMPLE_NAME_LENGTH;
+            RomImage.copy(romImage, nameOffset + SAMPLE_NAME_LENGTH, romImage, nameOffset, SAMPLE_NAME_LENGTH);
+        }
+        clearSampleName(MAX_SAMPLES - 1);
+        setSampleNibbles(samples);
+    }
+
+    /**
+     * Turns the bank into a kit without samples or names.
+     */
+    public void clear() {
+        romImage.fill(offset() + 2, offset() + RomUtilities.BANK_SIZE, (byte) 0);
+        romImage.fill(offset() + KIT_NAME_OFFSET, offset() + KIT_NAME_OFFSET + KIT_NAME_LENGTH, (byte) ' ');
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            clearSampleName(i);
+        }
+    }
+
+    /**
+     * Turns the bank into an empty kit slot.
+     */
+    public void erase() {
+        romImage.fill(offset(), offset() + RomUtilities.BANK_SIZE, (byte) -1);
+    }
+
+    /**
+     * The whole bank, as stored in .kit files.
+     */
+    public byte[] toByteArray() {
+        byte[] data = new byte[RomUtilities.BANK_SIZE];
+        romImage.get(offset(), data, 0, data.length);
+        return data;
+    }
+
+    /**
+     * Replaces the whole bank, as read from a .kit file.
+     */
+    public void load(byte[] data) {
+        if (data.length != RomUtilities.BANK_SIZE) {
+            throw new IllegalArgumentException("A kit is " + RomUtilities.BANK_SIZE + " bytes long");
+        }
+        romImage.set(offset(), data, 0, data.length);
+    }
+
+    private int address(int index) {
+        int tableOffset = offset() + index * 2;
+        return (romImage.get(tableOffset) & 0xff) | (romImage.get(tableOffset + 1) & 0xff) << 8;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] chars = new byte[length];
+        romImage.get(offset() + offset, chars, 0, length);
+        StringBuilder s = new StringBuilder();
+        for (byte c : chars) {
+            s.append((char) (c & 0xff));
+        }
+        return s.toString();
+    }
+
+    private void writeString(int offset, int length, String value, char padding) {
+        String s = value.toUpperCase();
+        for (int i = 0; i < length; ++i) {
+            romImage.set(offset() + offset + i, (byte) (i < s.length() ? s.charAt(i) : padding));
+        }
+    }
+}
@@ -38,8 +38,8 @@ public class LSDJFont extends ROMDataManipulator {
         int tileToRead = (y / 8) * 8 + x / 8;
         int tileOffset = getTileDataLocation(tileToRead) + (y % 8) * 2;
         int xMask = 7 - (x % 8);
-        int value = (romImage[tileOffset] >> xMask) & 1;
-        value |= ((romImage[tileOffset + 1] >> xMask) & 1) << 1;
+        int value = (romImage.get(tileOffset) >> xMask) & 1;
+        value |= ((romImage.get(tileOffset + 1) >> xMask) & 1) << 1;
         return value;
     }
 
@@ -62,13 +62,13 @@ public class LSDJFont extends ROMDataManipulator {
 
         int tileOffset = getTileDataLocation(tileToEdit) + localY * 2;
         int xMask = 0x80 >> localX;
-        romImage[tileOffset] &= 0xff ^ xMask;
-        romImage[tileOffset + 1] &= 0xff ^ xMask;
+        romImage.set(tileOffset, (byte) (romImage.get(tileOffset) & (0xff ^ xMask)));
+        romImage.set(tileOffset + 1, (byte) (romImage.get(tileOffset + 1) & (0xff ^ xMask)));
         switch (color) {
             case 3:
-                romImage[tileOffset + 1] |= xMask;
+                romImage.set(tileOffset + 1, (byte) (romImage.get(tileOffset + 1) | xMask));
             case 2:
-                romImage[tileOffset] |= xMask;
+                romImage.set(tileOffset, (byte) (romImage.get(tileOffset) | xMask));
         }
     }
 
@@ -78,47 +78,47 @@ public class LSDJFont extends ROMDataManipulator {
 
     public void rotateTileUp(int tile) {
         int tileOffset = getTileDataLocation(tile);
-        byte line0origin1 = romImage[tileOffset];
-        byte line0origin2 = romImage[tileOffset + 1];
+        byte line0origin1 = romImage.get(tileOffset);
+        byte line0origin2 = romImage.get(tileOffset + 1);
         for (int i = 0; i < 8; i++) {
             int lineTargetOffset = tileOffset + i * 2;
             int lineOriginOffset = tileOffset + (i + 1 % 8) * 2;
-            romImage[lineTargetOffset] = romImage[lineOriginOffset];
-            romImage[lineTargetOffset + 1] = romImage[lineOriginOffset + 1];
+            romImage.set(lineTargetOffset, romImage.get(lineOriginOffset));
+            romImage.set(lineTargetOffset + 1, romImage.get(lineOriginOffset + 1));
         }
-        romImage[tileOffset + 7 * 2] = line0origin1;
-        romImage[tileOffset + 7 * 2 + 1] = line0origin2;
+        romImage.set(tileOffset + 7 * 2, line0origin1);
+        romImage.set(tileOffset + 7 * 2 + 1, line0origin2);
     }
 
     public void rotateTileDown(int tile) {
         int tileOffset = getTileDataLocation(tile);
-        byte line7origin1 = romImage[tileOffset + 7 * 2];
-        byte line7origin2 = romImage[tileOffset + 7 * 2 + 1];
+        byte line7origin1 = romImage.get(tileOffset + 7 * 2);
+        byte line7origin2 = romImage.get(tileOffset + 7 * 2 + 1);
         for (int i = 7; i > 0; i--) {
             int lineTargetOffset = tileOffset + i * 2;
             int lineOriginOffset = tileOffset + (i - 1) * 2;
-            romImage[lineTargetOffset] = romImage[lineOriginOffset];
-            romImage[lineTargetOffset + 1] = romImage[lineOriginOffset + 1];
+            romImage.set(lineTargetOffset, romImage.get(lineOriginOffset));
+            romImage.set(lineTargetOffset + 1, romImage.get(lineOriginOffset + 1));
         }
-        romImage[tileOffset] = line7origin1;
-        romImage[tileOffset + 1] = line7origin2;
+        romImage.set(tileOffset, line7origin1);
+        romImage.set(tileOffset + 1, line7origin2);
     }
 
     public void rotateTileRight(int tile) {
         int tileOffset = getTileDataLocation(tile);
         for (int i = 0; i < 16; i++) {
-            byte currentByte = romImage[tileOffset + i];
+            byte currentByte = romImage.get(tileOffset + i);
             byte shiftedByte = (byte) (((currentByte & 1) << 7) | ((currentByte >> 1) & 0x7F));
-            romImage[tileOffset + i] = shiftedByte;
+            romImage.set(tileOffset + i, shiftedByte);
         }
     }
 
     public void rotateTileLeft(int tile) {
         int tileOffset = getTileDataLocation(tile);
         for (int i = 0; i < 16; i++) {
-            byte currentByte = romImage[tileOffset + i];
+            byte currentByte = romImage.get(tileOffset + i);
             byte shiftedByte = (byte) (((currentByte & 0x80) >> 7) | (currentByte << 1));
-            romImage[tileOffset + i] = shiftedByte;
+            romImage.set(tileOffset + i, shiftedByte);
         }
     }
 
@@ -141,8 +141,8 @@ public class LSDJFont extends ROMDataManipulator {
         int sourceLocation = getTileDataLocation(index); // The two first tiles are not mirrored.
         int invertedLocation = sourceLocation + 0x4d2;
         for (int i = 0; i < 16; i += 2) {
-            romImage[invertedLocation + i] = (byte) ~romImage[sourceLocation + i + 1];
-            romImage[invertedLocation + i + 1] = (byte) ~romImage[sourceLocation + i];
+            romImage.set(invertedLocation + i, (byte) ~romImage.get(sourceLocation + i + 1));
+            romImage.set(invertedLocation + i + 1, (byte) ~romImage.get(sourceLocation + i));
         }
     }
 
@@ -155,13 +155,13 @@ public class LSDJFont extends ROMDataManipulator {
         int sourceLocation = getTileDataLocation(index); // The two first tiles are not mirrored.
         int shadedLocation = sourceLocation + 0x4d2 * 2;
         for (int i = 0; i < 16; i += 2) {
-            int sourceByte = romImage[sourceLocation + i];
+            int sourceByte = romImage.get(sourceLocation + i);
             if (i % 4 == 2) {
-                romImage[shadedLocation + i] = (byte)(sourceByte | 0xaa);
+                romImage.set(shadedLocation + i, (byte)(sourceByte | 0xaa));
             } else {
-                romImage[shadedLocation + i] = (byte)(sourceByte | 0x55);
+                romImage.set(shadedLocation + i, (byte)(sourceByte | 0x55));
             }
-            romImage[shadedLocation + i + 1] = romImage[sourceLocation + i + 1];
+            romImage.set(shadedLocation + i + 1, romImage.get(sourceLocation + i + 1));
         }
     }
 
@@ -0,0 +1,72 @@
+package structures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import utils.RomUtilities;
+
+/**
+ * Entry point to the kits, palettes and fonts of a LSDj ROM image, for tools that embed the editor's logic.
+ * <p>
+ * This and the tables it hands out work directly on the {@link RomImage}, so edits made through them show up in
+ * the image and in one another right away. None of them loads AWT or Swing classes.
+ */
+public class LsdjRom {
+    private final RomImage romImage;
+
+    public LsdjRom(RomImage romImage) {
+        this.romImage = romImage;
+    }
+
+    /**
+     * Opens a ROM image file, checking that it is a LSDj ROM image.
+     *
+     * @throws IOException if the file can't be read or LSDj's palettes and fonts aren't found in it.
+     */
+    public static LsdjRom open(File file) throws IOException {
+        RomImage romImage = RomImage.open(file);
+        if (!romImage.getLayout().isComplete()) {
+            throw new IOException(file.getName() + " doesn't look like a LSDj ROM image: its palettes and fonts "
+                    + "weren't found.");
+        }
+        return new LsdjRom(romImage);
+    }
+
+    public RomImage getRomImage() {
+        return romImage;
+    }
+
+    /**
+     * Banks holding either a kit or an empty kit slot, in ROM order, as they are now.
+     */
+    public List<KitBank> getKitBanks() {
+        List<KitBank> kitBanks = new ArrayList<>();
+        for (int bank : romImage.getKitBanks()) {
+            kitBanks.add(new KitBank(romImage, bank));
+        }
+        return Collections.unmodifiableList(kitBanks);
+    }
+
+    public KitBank getKitBank(int bank) {
+        return new KitBank(romImage, bank);
+    }
+
+    public PaletteTable getPalettes() {
+        return new PaletteTable(romImage);
+    }
+
+    public FontTable getFonts() {
+        return new FontTable(romImage);
+    }
+
+    /**
+     * Updates the checksum and writes the image to a file.
+     */
+    public void save(File file) throws IOException {
+        RomUtilities.updateChecksum(romImage);
+        romImage.save(file);
+    }
+}
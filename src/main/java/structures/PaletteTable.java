@@ -0,0 +1,94 @@
+package structures;
+
+import utils.RomUtilities;
+
+/**
+ * The color palettes of a ROM image and their names.
+ * <p>
+ * A palette is made of 5 color sets of 4 colors, each a little endian 15-bit BGR word as the Game Boy Color uses
+ * them. Names are 4 characters long.
+ */
+public class PaletteTable {
+    public static final int COLOR_SET_COUNT = RomUtilities.NUM_COLOR_SETS;
+    public static final int COLORS_PER_SET = 4;
+    private static final int NAME_LENGTH = RomUtilities.PALETTE_NAME_SIZE - 1;
+
+    private final RomImage romImage;
+
+    PaletteTable(RomImage romImage) {
+        this.romImage = romImage;
+    }
+
+    public int size() {
+        return romImage.getLayout().getNumberOfPalettes();
+    }
+
+    public String getName(int palette) {
+        int offset = nameOffset(palette);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < NAME_LENGTH; ++i) {
+            s.append((char) romImage.get(offset + i));
+        }
+        return s.toString();
+    }
+
+    public void setName(int palette, String name) {
+        int offset = nameOffset(palette);
+        for (int i = 0; i < NAME_LENGTH; ++i) {
+            romImage.set(offset + i, (byte) (i < name.length() ? name.charAt(i) : ' '));
+        }
+    }
+
+    /**
+     * A color as its 15-bit BGR word.
+     */
+    public int getColor(int palette, int colorSet, int color) {
+        int offset = colorOffset(palette, colorSet, color);
+        return (romImage.get(offset) & 0xff) | (romImage.get(offset + 1) & 0x7f) << 8;
+    }
+
+    public void setColor(int palette, int colorSet, int color, int bgr555) {
+        int offset = colorOffset(palette, colorSet, color);
+        romImage.set(offset, (byte) bgr555);
+        romImage.set(offset + 1, (byte) ((bgr555 >> 8) & 0x7f));
+    }
+
+    /**
+     * The colors of a palette, as stored in .lsdpal files after the name.
+     */
+    public byte[] getPalette(int palette) {
+        byte[] data = new byte[RomUtilities.PALETTE_SIZE];
+        romImage.get(paletteOffset(palette), data, 0, data.length);
+        return data;
+    }
+
+    public void setPalette(int palette, byte[] data) {
+        if (data.length != RomUtilities.PALETTE_SIZE) {
+            throw new IllegalArgumentException("A palette is " + RomUtilities.PALETTE_SIZE + " bytes long");
+        }
+        romImage.set(paletteOffset(palette), data, 0, data.length);
+    }
+
+    private void checkIndex(int palette) {
+        if (palette < 0 || palette >= size()) {
+            throw new IndexOutOfBoundsException("No palette " + palette);
+        }
+    }
+
+    private int paletteOffset(int palette) {
+        checkIndex(palette);
+        return romImage.getLayout().getPaletteOffset() + palette * RomUtilities.PALETTE_SIZE;
+    }
+
+    private int colorOffset(int palette, int colorSet, int color) {
+        if (colorSet < 0 || colorSet >= COLOR_SET_COUNT || color < 0 || color >= COLORS_PER_SET) {
+            throw new IndexOutOfBoundsException("No color " + colorSet + ":" + color);
+        }
+        return paletteOffset(palette) + colorSet * RomUtilities.COLOR_SET_SIZE + color * 2;
+    }
+
+    private int nameOffset(int palette) {
+        checkIndex(palette);
+        return romImage.getLayout().getPaletteNameOffset() + palette * RomUtilities.PALETTE_NAME_SIZE;
+    }
+}
@@ -6,9 +6,9 @@ package structures;
 public abstract class ROMDataManipulator {
 
     protected int dataOffset = 0;
-    protected byte[] romImage = null;
+    protected RomImage romImage = null;
 
-    public void setRomImage(byte[] romImage) {
+    public void setRomImage(RomImage romImage) {
         this.romImage = romImage;
     }
 
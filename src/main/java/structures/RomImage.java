@@ -0,0 +1,342 @@
+package structures;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import utils.RomUtilities;
+
+/**
+ * A ROM image split in banks of {@link RomUtilities#BANK_SIZE} bytes.
+ * <p>
+ * Images opened from a file are memory-mapped read-only. A bank is only copied onto the heap the first time
+ * something is written into it, reads of untouched banks go straight to the mapping. Images wrapping an array
+ * simply read and write into that array.
+ * <p>
+ * Every bank written to since the last save is flagged as dirty. Saving back into the file the image was loaded
+ * from or last saved to only writes the dirty banks and the header checksum bytes, which are written on every save
+ * and thus don't flag bank 0. Writes go through positional writes and never truncate the file, as some platforms
+ * refuse to resize a file with a live mapping. A save can be split so that the file is written from another thread
+ * while the image keeps being edited, see {@link #prepareSave}; otherwise images aren't thread safe.
+ * <p>
+ * The sum of each bank's bytes, checksum bytes excluded, is cached until something is written into that bank.
+ */
+public class RomImage {
+    private static final int BANK_SHIFT = 14;
+    private static final int BANK_MASK = RomUtilities.BANK_SIZE - 1;
+    private static final int CHECKSUM_START = 0x14D;
+    private static final int CHECKSUM_END = 0x150;
+
+    private final ByteBuffer base;
+    // Copy-on-write overlay, only used when the base is read-only.
+    private final byte[][] banks;
+    private final int length;
+    private final BitSet dirtyBanks = new BitSet();
+    private final int[] bankSums;
+    private final BitSet summedBanks = new BitSet();
+    // File whose content matches this image, dirty banks aside.
+    private File syncedFile;
+    private RomLayout layout;
+    // Dropped whenever the first two bytes of a bank, which tell kit banks apart, are written.
+    private int[] kitBanks;
+
+    private RomImage(ByteBuffer base, File syncedFile) {
+        this.base = base;
+        this.length = base.capacity();
+        this.banks = base.isReadOnly() ? new byte[bankCount()][] : null;
+        this.bankSums = new int[bankCount()];
+        this.syncedFile = syncedFile;
+    }
+
+    public static RomImage open(File file) throws IOException {
+        int romSize = RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT;
+        try (RandomAccessFile romFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = romFile.getChannel();
+            if (channel.size() < romSize) {
+                throw new EOFException(file.getName() + " is too small to be a LSDj ROM image.");
+            }
+            // The mapping stays valid once the channel is closed.
+            return new RomImage(channel.map(FileChannel.MapMode.READ_ONLY, 0, romSize), file.getCanonicalFile());
+        }
+    }
+
+    public static RomImage wrap(byte[] data) {
+        return new RomImage(ByteBuffer.wrap(data), null);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int bankCount() {
+        return (length + BANK_MASK) >> BANK_SHIFT;
+    }
+
+    public RomLayout getLayout() {
+        if (layout == null) {
+            layout = RomLayout.scan(this);
+        }
+        return layout;
+    }
+
+    /**
+     * Banks holding either a kit or an empty kit slot, in ROM order. Kept up to date as kits are created or erased.
+     */
+    public int[] getKitBanks() {
+        if (kitBanks == null) {
+            kitBanks = KitBank.findKitBanks(this);
+        }
+        return kitBanks.clone();
+    }
+
+    public boolean isBankDirty(int bank) {
+        return dirtyBanks.get(bank);
+    }
+
+    /**
+     * Sum of the unsigned bytes of a bank, leaving out the header checksum bytes.
+     */
+    public int bankSum(int bank) {
+        if (!summedBanks.get(bank)) {
+            int bankStart = bank << BANK_SHIFT;
+            int bankEnd = Math.min(bankStart + RomUtilities.BANK_SIZE, length);
+            int sum = 0;
+            byte[] data = banks != null ? banks[bank] : null;
+            for (int i = bankStart; i < bankEnd; ++i) {
+                if (i >= CHECKSUM_START && i < CHECKSUM_END) {
+                    continue;
+                }
+                sum += (data != null ? data[i & BANK_MASK] : base.get(i)) & 0xFF;
+            }
+            bankSums[bank] = sum;
+            summedBanks.set(bank);
+        }
+        return bankSums[bank];
+    }
+
+    public byte get(int offset) {
+        if (banks != null) {
+            byte[] bank = banks[offset >> BANK_SHIFT];
+            if (bank != null) {
+                return bank[offset & BANK_MASK];
+            }
+        }
+        return base.get(offset);
+    }
+
+    public void set(int offset, byte value) {
+        if (get(offset) == value) {
+            return;
+        }
+        markDirty(offset, offset + 1);
+        if (banks == null) {
+            base.put(offset, value);
+            return;
+        }
+        writableBank(offset >> BANK_SHIFT)[offset & BANK_MASK] = value;
+    }
+
+    public void get(int offset, byte[] dst, int dstOffset, int count) {
+        while (count > 0) {
+            int chunk = Math.min(count, RomUtilities.BANK_SIZE - (offset & BANK_MASK));
+            byte[] bank = banks != null ? banks[offset >> BANK_SHIFT] : null;
+            if (bank != null) {
+                System.arraycopy(bank, offset & BANK_MASK, dst, dstOffset, chunk);
+            } else {
+                ByteBuffer view = base.duplicate();
+                view.position(offset);
+                view.get(dst, dstOffset, chunk);
+            }
+            offset += chunk;
+            dstOffset += chunk;
+            count -= chunk;
+        }
+    }
+
+    public void set(int offset, byte[] src, int srcOffset, int count) {
+        markDirty(offset, offset + count);
+        while (count > 0) {
+            int chunk = Math.min(count, RomUtilities.BANK_SIZE - (offset & BANK_MASK));
+            if (banks == null) {
+                ByteBuffer view = base.duplicate();
+                view.position(offset);
+                view.put(src, srcOffset, chunk);
+            } else {
+                System.arraycopy(src, srcOffset, writableBank(offset >> BANK_SHIFT), offset & BANK_MASK, chunk);
+            }
+            offset += chunk;
+            srcOffset += chunk;
+            count -= chunk;
+        }
+    }
+
+    public void fill(int fromOffset, int toOffset, byte value) {
+        markDirty(fromOffset, toOffset);
+        while (fromOffset < toOffset) {
+            int chunk = Math.min(toOffset - fromOffset, RomUtilities.BANK_SIZE - (fromOffset & BANK_MASK));
+            if (banks == null) {
+                for (int i = fromOffset; i < fromOffset + chunk; ++i) {
+                    base.put(i, value);
+                }
+            } else {
+                int bankOffset = fromOffset & BANK_MASK;
+                Arrays.fill(writableBank(fromOffset >> BANK_SHIFT), bankOffset, bankOffset + chunk, value);
+            }
+            fromOffset += chunk;
+        }
+    }
+
+    /**
+     * Same contract as System.arraycopy, between two ROM images.
+     */
+    public static void copy(RomImage src, int srcOffset, RomImage dst, int dstOffset, int count) {
+        byte[] buffer = new byte[Math.min(count, RomUtilities.BANK_SIZE)];
+        while (count > 0) {
+            int chunk = Math.min(count, buffer.length);
+            src.get(srcOffset, buffer, 0, chunk);
+            dst.set(dstOffset, buffer, 0, chunk);
+            srcOffset += chunk;
+            dstOffset += chunk;
+            count -= chunk;
+        }
+    }
+
+    /**
+     * Writes the image into the given file. Only the dirty banks are written if the file already holds the image.
+     */
+    public void save(File file) throws IOException {
+        PendingSave save = prepareSave(file);
+        try {
+            save.write();
+        } catch (IOException e) {
+            save.abort();
+            throw e;
+        }
+        save.finish();
+    }
+
+    /**
+     * Takes what {@link #save} would write, for {@link PendingSave#write} to write it from another thread while the
+     * image keeps being edited. Must be called on the thread editing the image, as must finish and abort.
+     */
+    public PendingSave prepareSave(File file) throws IOException {
+        File target = file.getCanonicalFile();
+        boolean incremental = target.equals(syncedFile);
+        List<Integer> offsets = new ArrayList<>();
+        List<ByteBuffer> sources = new ArrayList<>();
+        for (int bank = 0; bank < bankCount(); ++bank) {
+            if (!incremental || dirtyBanks.get(bank)) {
+                int offset = bank << BANK_SHIFT;
+                offsets.add(offset);
+                sources.add(snapshot(offset, Math.min(RomUtilities.BANK_SIZE, length - offset)));
+            }
+        }
+        if (incremental && !dirtyBanks.get(0)) {
+            offsets.add(CHECKSUM_START);
+            sources.add(snapshot(CHECKSUM_START, CHECKSUM_END - CHECKSUM_START));
+        }
+        PendingSave save = new PendingSave(target, offsets, sources, (BitSet) dirtyBanks.clone());
+        dirtyBanks.clear();
+        return save;
+    }
+
+    /**
+     * A copy of the image being saved. Banks written to after it was taken are flagged as dirty again.
+     */
+    public final class PendingSave {
+        private final File target;
+        private final List<Integer> offsets;
+        private final List<ByteBuffer> sources;
+        private final BitSet savedBanks;
+
+        private PendingSave(File target, List<Integer> offsets, List<ByteBuffer> sources, BitSet savedBanks) {
+            this.target = target;
+            this.offsets = offsets;
+            this.sources = sources;
+            this.savedBanks = savedBanks;
+        }
+
+        /**
+         * Writes the copy into the file, from any thread.
+         */
+        public void write() throws IOException {
+            try (RandomAccessFile romFile = new RandomAccessFile(target, "rw")) {
+                FileChannel channel = romFile.getChannel();
+                for (int i = 0; i < offsets.size(); ++i) {
+                    ByteBuffer source = sources.get(i).duplicate();
+                    long position = offsets.get(i);
+                    while (source.hasRemaining()) {
+                        position += channel.write(source, position);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Records that the file now holds the image, once written.
+         */
+        public void finish() {
+            syncedFile = target;
+        }
+
+        /**
+         * Flags the banks that were to be saved as dirty again, after a failed write.
+         */
+        public void abort() {
+            dirtyBanks.or(savedBanks);
+        }
+    }
+
+    // Bytes as they are now, the range not crossing a bank boundary. The read-only mapping never changes, so only
+    // heap data is copied.
+    private ByteBuffer snapshot(int offset, int count) {
+        int bank = offset >> BANK_SHIFT;
+        if (banks != null && banks[bank] != null) {
+            return ByteBuffer.wrap(Arrays.copyOfRange(banks[bank], offset & BANK_MASK, (offset & BANK_MASK) + count));
+        }
+        if (banks == null) {
+            byte[] data = new byte[count];
+            get(offset, data, 0, count);
+            return ByteBuffer.wrap(data);
+        }
+        ByteBuffer source = base.duplicate();
+        source.limit(offset + count);
+        source.position(offset);
+        return source.slice();
+    }
+
+    private void markDirty(int fromOffset, int toOffset) {
+        if (fromOffset >= CHECKSUM_START && toOffset <= CHECKSUM_END) {
+            return;
+        }
+        if (fromOffset < toOffset) {
+            int firstBank = fromOffset >> BANK_SHIFT;
+            int lastBank = (toOffset - 1) >> BANK_SHIFT;
+            dirtyBanks.set(firstBank, lastBank + 1);
+            if (firstBank != lastBank || (fromOffset & BANK_MASK) < 2) {
+                kitBanks = null;
+            }
+            summedBanks.clear(firstBank, lastBank + 1);
+        }
+    }
+
+    private byte[] writableBank(int bank) {
+        byte[] data = banks[bank];
+        if (data == null) {
+            int bankStart = bank << BANK_SHIFT;
+            data = new byte[RomUtilities.BANK_SIZE];
+            ByteBuffer view = base.duplicate();
+            view.position(bankStart);
+            view.get(data, 0, Math.min(RomUtilities.BANK_SIZE, length - bankStart));
+            banks[bank] = data;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,163 @@
+package structures;
+
+import utils.RomUtilities;
+
+/**
+ * Where LSDj keeps its palettes and fonts in a given ROM image.
+ * <p>
+ * The offsets are found once, with a single pass over banks 1, 27 and 30. LSDj never moves that data around and
+ * editing it doesn't change the signatures looked for, so the layout stays valid for the image's whole life.
+ */
+public class RomLayout {
+    private static final int SCREEN_BACKGROUND_BANK = 1;
+    private static final int PALETTE_NAME_BANK = 27;
+    private static final int FONT_BANK = 30;
+
+    // 17 zeroes followed by the first screen background tiles.
+    private static final byte[] SCREEN_BACKGROUND_SIGNATURE = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 72, 72, 72
+    };
+    // End of the graphics font, the fonts directly follow.
+    private static final byte[] FONT_END_SIGNATURE = {
+            0, 0, 0, 0, (byte) 0xd0, (byte) 0x90, 0x50, 0x50, 0x50, 0x50, 0x50, 0x50, (byte) 0xd0, (byte) 0x90, 0, 0
+    };
+    // Three zero-terminated four letter names.
+    private static final int GRAYSCALE_PALETTE_NAMES_LENGTH = 15;
+
+    private final int numberOfPalettes;
+    private final int paletteOffset;
+    private final int paletteNameOffset;
+    private final int fontOffset;
+    private final int fontNameOffset;
+
+    RomLayout(int numberOfPalettes, int paletteOffset, int paletteNameOffset, int fontOffset, int fontNameOffset) {
+        this.numberOfPalettes = numberOfPalettes;
+        this.paletteOffset = paletteOffset;
+        this.paletteNameOffset = paletteNameOffset;
+        this.fontOffset = fontOffset;
+        this.fontNameOffset = fontNameOffset;
+    }
+
+    static RomLayout scan(RomImage romImage) {
+        int grayscalePaletteNames = findGrayscalePaletteNames(readBank(romImage, PALETTE_NAME_BANK,
+                GRAYSCALE_PALETTE_NAMES_LENGTH));
+
+        int numberOfPalettes = -1;
+        int paletteNameOffset = -1;
+        int fontNameOffset = -1;
+        if (grayscalePaletteNames != -1) {
+            grayscalePaletteNames += PALETTE_NAME_BANK * RomUtilities.BANK_SIZE;
+            numberOfPalettes = 0;
+            for (int j = grayscalePaletteNames + 4; romImage.get(j) == 0; j += 5) {
+                ++numberOfPalettes;
+            }
+            numberOfPalettes /= 2;
+            paletteNameOffset = grayscalePaletteNames + RomUtilities.PALETTE_NAME_SIZE * numberOfPalettes;
+            fontNameOffset = grayscalePaletteNames - GRAYSCALE_PALETTE_NAMES_LENGTH;
+        }
+
+        // The screen backgrounds are defined directly after the palettes in bank 1.
+        int paletteOffset = -1;
+        if (numberOfPalettes != -1) {
+            int screenBackground = indexOf(readBank(romImage, SCREEN_BACKGROUND_BANK,
+                    SCREEN_BACKGROUND_SIGNATURE.length), SCREEN_BACKGROUND_SIGNATURE);
+            if (screenBackground != -1) {
+                paletteOffset = SCREEN_BACKGROUND_BANK * RomUtilities.BANK_SIZE + screenBackground
+                        - numberOfPalettes * RomUtilities.PALETTE_SIZE;
+            }
+        }
+
+        int fontOffset = indexOf(readBank(romImage, FONT_BANK, FONT_END_SIGNATURE.length), FONT_END_SIGNATURE);
+        if (fontOffset != -1) {
+            fontOffset += FONT_BANK * RomUtilities.BANK_SIZE + FONT_END_SIGNATURE.length;
+        }
+
+        return new RomLayout(numberOfPalettes, paletteOffset, paletteNameOffset, fontOffset, fontNameOffset);
+    }
+
+    /**
+     * Whether the palettes and fonts were all found, which fails on anything but a LSDj ROM image.
+     */
+    public boolean isComplete() {
+        return numberOfPalettes != -1 && paletteOffset != -1 && fontOffset != -1;
+    }
+
+    public int getNumberOfPalettes() {
+        return numberOfPalettes;
+    }
+
+    public int getPaletteOffset() {
+        return paletteOffset;
+    }
+
+    public int getPaletteNameOffset() {
+        return paletteNameOffset;
+    }
+
+    public int getFontOffset() {
+        return fontOffset;
+    }
+
+    public int getFontNameOffset() {
+        return fontNameOffset;
+    }
+
+    // Reads a bank and enough of the next one for a signature starting at its last byte to be matched.
+    private static byte[] readBank(RomImage romImage, int bank, int signatureLength) {
+        int bankStart = bank * RomUtilities.BANK_SIZE;
+        int length = Math.min(RomUtilities.BANK_SIZE + signatureLength - 1, romImage.length() - bankStart);
+        byte[] data = new byte[Math.max(length, 0)];
+        romImage.get(bankStart, data, 0, data.length);
+        return data;
+    }
+
+    // Returns the offset right after the first grayscale palette names, or -1.
+    private static int findGrayscalePaletteNames(byte[] data) {
+        int nonZeroRun = 0;
+        int names = 0;
+        for (int i = 0; i < data.length; ++i) {
+            if (data[i] != 0) {
+                ++nonZeroRun;
+                continue;
+            }
+            if (nonZeroRun == 4 && names > 0) {
+                ++names;
+            } else {
+                names = nonZeroRun >= 4 ? 1 : 0;
+            }
+            nonZeroRun = 0;
+            if (names == 3 && i + 1 - GRAYSCALE_PALETTE_NAMES_LENGTH < RomUtilities.BANK_SIZE) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Knuth-Morris-Pratt search, so that every byte of the bank is only looked at once.
+    private static int indexOf(byte[] data, byte[] pattern) {
+        int[] fallback = new int[pattern.length];
+        for (int i = 1, k = 0; i < pattern.length; ++i) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = fallback[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                ++k;
+            }
+            fallback[i] = k;
+        }
+
+        for (int i = 0, k = 0; i < data.length; ++i) {
+            while (k > 0 && data[i] != pattern[k]) {
+                k = fallback[k - 1];
+            }
+            if (data[i] == pattern[k]) {
+                ++k;
+            }
+            if (k == pattern.length) {
+                int start = i + 1 - pattern.length;
+                return start < RomUtilities.BANK_SIZE ? start : -1;
+            }
+        }
+        return -1;
+    }
+}
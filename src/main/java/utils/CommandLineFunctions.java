@@ -3,13 +3,20 @@ package utils;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Vector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
 
+import kitEditor.KitBuilder;
 import structures.LSDJFont;
+import structures.LsdjRom;
+import structures.RomImage;
 
 public class CommandLineFunctions {
     public static void pngToFont(String name, String pngFile, String fntFile) {
@@ -22,7 +29,7 @@ public class CommandLineFunctions {
             }
 
             LSDJFont font = new LSDJFont();
-            font.setRomImage(buffer);
+            font.setRomImage(RomImage.wrap(buffer));
             font.setDataOffset(0);
             font.generateShadedAndInvertedTiles();
             String sub = font.loadImageData(name, image);
@@ -38,7 +45,7 @@ public class CommandLineFunctions {
             byte[] buffer = new byte[LSDJFont.FONT_NUM_TILES_X * LSDJFont.FONT_NUM_TILES_Y * 16];
             FontIO.loadFnt(new File(fntFile), buffer);
             LSDJFont font = new LSDJFont();
-            font.setRomImage(buffer);
+            font.setRomImage(RomImage.wrap(buffer));
             font.setDataOffset(0);
             BufferedImage image = font.saveDataToImage();
             ImageIO.write(image, "PNG", new File(pngFile));
@@ -54,10 +61,7 @@ public class CommandLineFunctions {
             return;
         }
         try {
-            byte[] romImage = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            RandomAccessFile romFile = new RandomAccessFile(new File(romFileName), "r");
-            romFile.readFully(romImage);
-            romFile.close();
+            RomImage romImage = RomImage.open(new File(romFileName));
             LSDJFont font = new LSDJFont();
 
             font.setRomImage(romImage);
@@ -79,9 +83,7 @@ public class CommandLineFunctions {
             return;
         }
         try {
-            byte[] romImage = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            RandomAccessFile romFile = new RandomAccessFile(new File(romFileName), "rw");
-            romFile.readFully(romImage);
+            RomImage romImage = RomImage.open(new File(romFileName));
             LSDJFont font = new LSDJFont();
 
             font.setRomImage(romImage);
@@ -92,48 +94,18 @@ public class CommandLineFunctions {
 
             String correctedName = font.loadImageData(fontName, ImageIO.read(new File(imageFileName)));
             RomUtilities.setFontName(romImage, numFont, correctedName);
-            romFile.seek(0);
-            romFile.write(romImage);
-            romFile.close();
+            romImage.save(new File(romFileName));
 
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // TODO Merge with KitEditor's own version
-    private static boolean isRomBankAKit(int bankIndex, byte[] romImage) {
-        int l_offset = bankIndex * RomUtilities.BANK_SIZE;
-        byte l_char_1 = romImage[l_offset++];
-        byte l_char_2 = romImage[l_offset];
-        return (l_char_1 == 0x60 && l_char_2 == 0x40);
-    }
-
-    // TODO Merge with KitEditor's own version
-    private static boolean isRomBankEmpty(int bankIndex, byte[] romImage) {
-        int l_offset = bankIndex * RomUtilities.BANK_SIZE;
-        byte l_char_1 = romImage[l_offset++];
-        byte l_char_2 = romImage[l_offset];
-        return (l_char_1 == -1 && l_char_2 == -1);
-    }
-    // TODO replace KitEditor's own version with that
-    private static void clearKitBank(int bankIndex, byte[] romImage) {
-        int baseOffset = bankIndex * RomUtilities.BANK_SIZE;
-        int endOfBank = (bankIndex + 1) * RomUtilities.BANK_SIZE;
-
-        Arrays.fill(romImage, baseOffset, endOfBank, (byte)0xFF);
-    }
-
     public static void copyAllCustomizations(String originFileName, String destinationFileName)
     {
         try {
-            byte[] originRomFile = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            byte[] destinationRomFile = new byte[RomUtilities.BANK_SIZE * RomUtilities.BANK_COUNT];
-            RandomAccessFile originFile = new RandomAccessFile(new File(originFileName), "r");
-            originFile.readFully(originRomFile);
-
-            RandomAccessFile destinationFile = new RandomAccessFile(new File(destinationFileName), "rw");
-            destinationFile.readFully(destinationRomFile);
+            RomImage originRomFile = RomImage.open(new File(originFileName));
+            RomImage destinationRomFile = RomImage.open(new File(destinationFileName));
 
 
             if (RomUtilities.getNumberOfPalettes(originRomFile) > RomUtilities.getNumberOfPalettes(destinationRomFile))
@@ -148,38 +120,36 @@ public class CommandLineFunctions {
                 int outBaseFontOffset = RomUtilities.findFontOffset(destinationRomFile);
 
 
-                System.arraycopy(originRomFile, inBaseFontOffset, destinationRomFile, outBaseFontOffset,
+                RomImage.copy(originRomFile, inBaseFontOffset, destinationRomFile, outBaseFontOffset,
                         (LSDJFont.FONT_SIZE + LSDJFont.FONT_HEADER_SIZE) * LSDJFont.FONT_COUNT);
 
                 int inBaseFontNameOffset = RomUtilities.findFontNameOffset(originRomFile);
                 int outBaseFontNameOffset = RomUtilities.findFontNameOffset(destinationRomFile);
-                System.arraycopy(originRomFile, inBaseFontNameOffset, destinationRomFile, outBaseFontNameOffset,
+                RomImage.copy(originRomFile, inBaseFontNameOffset, destinationRomFile, outBaseFontNameOffset,
                         LSDJFont.FONT_NAME_LENGTH * LSDJFont.FONT_COUNT);
             }
 
             {
                 int inPaletteOffset = RomUtilities.findPaletteOffset(originRomFile);
                 int outPaletteOffset = RomUtilities.findPaletteOffset(destinationRomFile);
-                System.arraycopy(originRomFile, inPaletteOffset, destinationRomFile, outPaletteOffset,
+                RomImage.copy(originRomFile, inPaletteOffset, destinationRomFile, outPaletteOffset,
                         RomUtilities.PALETTE_SIZE * RomUtilities.getNumberOfPalettes(originRomFile));
 
                 int inPaletteNameOffset = RomUtilities.findPaletteNameOffset(originRomFile);
                 int outPaletteNameOffset = RomUtilities.findPaletteNameOffset(destinationRomFile);
-                System.arraycopy(originRomFile, inPaletteNameOffset, destinationRomFile, outPaletteNameOffset,
+                RomImage.copy(originRomFile, inPaletteNameOffset, destinationRomFile, outPaletteNameOffset,
                         RomUtilities.PALETTE_NAME_SIZE * RomUtilities.getNumberOfPalettes(originRomFile));
             }
 
             Vector<Integer> inKitsToCopy = new Vector<>();
-            for (int index = 0; index < RomUtilities.BANK_COUNT; ++index) {
-                if (isRomBankAKit(index, originRomFile)) {
+            for (int index : originRomFile.getKitBanks()) {
+                if (new LsdjRom(originRomFile).getKitBank(index).isKit()) {
                     inKitsToCopy.add(index);
                 }
             }
             Vector<Integer> outAvailableKitSlots = new Vector<>();
-            for (int index = 0; index < RomUtilities.BANK_COUNT; ++index) {
-                if (isRomBankAKit(index, destinationRomFile) || isRomBankEmpty(index, destinationRomFile)) {
-                    outAvailableKitSlots.add(index);
-                }
+            for (int index : destinationRomFile.getKitBanks()) {
+                outAvailableKitSlots.add(index);
             }
 
             if (outAvailableKitSlots.size() < inKitsToCopy.size()) {
@@ -192,7 +162,7 @@ public class CommandLineFunctions {
             for (int index = 0; index < numToClone; ++index)  {
                 int inIndexOfKitToCopy = inKitsToCopy.get(index);
                 int outIndexOfKitToOverwrite = outAvailableKitSlots.get(index);
-                System.arraycopy(
+                RomImage.copy(
                         originRomFile, inIndexOfKitToCopy * RomUtilities.BANK_SIZE,
                         destinationRomFile, outIndexOfKitToOverwrite * RomUtilities.BANK_SIZE,
                         RomUtilities.BANK_SIZE
@@ -200,13 +170,11 @@ public class CommandLineFunctions {
             }
             // Cleaning the destination file
             for (int index = numToClone; index < outAvailableKitSlots.size(); ++index)  {
-                clearKitBank(outAvailableKitSlots.get(index), destinationRomFile);
+                new LsdjRom(destinationRomFile).getKitBank(outAvailableKitSlots.get(index)).erase();
             }
 
-            RomUtilities.fixChecksum(destinationRomFile);
-            destinationFile.seek(0);
-            destinationFile.write(destinationRomFile);
-            destinationFile.close();
+            RomUtilities.updateChecksum(destinationRomFile);
+            destinationRomFile.save(new File(destinationFileName));
 
 
         } catch (IOException e) {
@@ -215,4 +183,70 @@ public class CommandLineFunctions {
 
     }
 
+    // Every folder holding WAV files becomes a kit, in path order.
+    private static List<File> findKitFolders(File kitsDirectory) throws IOException {
+        try (Stream<Path> paths = Files.walk(kitsDirectory.toPath())) {
+            return paths.filter(Files::isDirectory)
+                    .map(Path::toFile)
+                    .filter(folder -> {
+                        File[] wavFiles = folder.listFiles(KitBuilder::isWavFile);
+                        return wavFiles != null && wavFiles.length > 0;
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static void buildKits(String romFileName, String kitsDirectoryName, boolean highQuality) {
+        try {
+            RomImage romImage = RomImage.open(new File(romFileName));
+            List<File> kitFolders = findKitFolders(new File(kitsDirectoryName));
+            int[] kitSlots = romImage.getKitBanks();
+            if (kitSlots.length < kitFolders.size()) {
+                System.err.printf("The ROM doesn't have enough kit slots (%d < %d). Aborting.",
+                        kitSlots.length, kitFolders.size());
+                return;
+            }
+
+            // Banks are independent from each other, compile them on the common fork-join pool.
+            List<List<byte[]>> kits;
+            try {
+                kits = kitFolders.parallelStream().map(folder -> {
+                    try {
+                        return KitBuilder.buildKits(folder, highQuality);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                System.err.println(e.getCause().getMessage() + " Aborting.");
+                return;
+            }
+
+            int kitCount = 0;
+            for (List<byte[]> folderKits : kits) {
+                kitCount += folderKits.size();
+            }
+            if (kitSlots.length < kitCount) {
+                System.err.printf("The ROM doesn't have enough kit slots (%d < %d). Aborting.",
+                        kitSlots.length, kitCount);
+                return;
+            }
+
+            int slot = 0;
+            for (int index = 0; index < kits.size(); ++index) {
+                for (byte[] kit : kits.get(index)) {
+                    romImage.set(kitSlots[slot] * RomUtilities.BANK_SIZE, kit, 0, kit.length);
+                    System.out.printf("%s -> bank %d\n", kitFolders.get(index), kitSlots[slot]);
+                    ++slot;
+                }
+            }
+
+            RomUtilities.updateChecksum(romImage);
+            romImage.save(new File(romFileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
 }
@@ -5,14 +5,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 
 import structures.LSDJFont;
+import structures.RomImage;
 
 public class FontIO {
 
     static String loadFnt(File file, byte[] array) throws IOException {
-        return loadFnt(file, array, 0);
+        return loadFnt(file, RomImage.wrap(array), 0);
     }
 
-    public static String loadFnt(File file, byte[] array, int arrayOffset) throws IOException {
+    public static String loadFnt(File file, RomImage romImage, int romOffset) throws IOException {
         StringBuilder name = new StringBuilder();
         int bytesPerTile = 16;
         int fontSize = LSDJFont.TILE_COUNT * bytesPerTile;
@@ -23,7 +24,7 @@ public class FontIO {
         }
 
         for (int i = 0; i < fontSize; ++i) {
-            array[i + arrayOffset] = (byte) f.read();
+            romImage.set(i + romOffset, (byte) f.read());
         }
 
         f.close();
@@ -31,10 +32,10 @@ public class FontIO {
     }
 
     static void saveFnt(File file, String fontName, byte[] array) throws IOException {
-        saveFnt(file, fontName, array, 0);
+        saveFnt(file, fontName, RomImage.wrap(array), 0);
     }
 
-    public static void saveFnt(File file, String fontName, byte[] array, int arrayOffset) throws IOException {
+    public static void saveFnt(File file, String fontName, RomImage romImage, int romOffset) throws IOException {
         FileOutputStream f = new java.io.FileOutputStream(file);
         f.write(fontName.charAt(0));
         f.write(fontName.charAt(1));
@@ -43,7 +44,7 @@ public class FontIO {
         int bytesPerTile = 16;
         int fontSize = LSDJFont.TILE_COUNT * bytesPerTile;
         for (int i = 0; i < fontSize; ++i) {
-            f.write(array[i + arrayOffset]);
+            f.write(romImage.get(i + romOffset));
         }
         f.close();
     }
@@ -0,0 +1,75 @@
+package utils;
+
+/**
+ * Minimum and maximum of a nibble sample over buckets of 1, 2, 4... nibbles, so that the peaks of any range can be
+ * found by reading a handful of buckets from the level matching its size.
+ */
+final class PeakPyramid {
+    private final int length;
+    // Level k holds the peaks of buckets of 2^k nibbles.
+    private final byte[][] mins;
+    private final byte[][] maxs;
+
+    /**
+     * @param packed two nibbles per byte, high nibble first, as stored in kit banks.
+     */
+    PeakPyramid(byte[] packed) {
+        length = packed.length * 2;
+        int levels = 1;
+        while (length > 1 << (levels - 1)) {
+            ++levels;
+        }
+        mins = new byte[levels][];
+        maxs = new byte[levels][];
+
+        byte[] nibbles = new byte[length];
+        for (int i = 0; i < packed.length; ++i) {
+            nibbles[i * 2] = (byte) ((packed[i] >> 4) & 0xf);
+            nibbles[i * 2 + 1] = (byte) (packed[i] & 0xf);
+        }
+        mins[0] = nibbles;
+        maxs[0] = nibbles;
+        for (int level = 1; level < levels; ++level) {
+            byte[] lowerMins = mins[level - 1];
+            byte[] lowerMaxs = maxs[level - 1];
+            int size = (lowerMins.length + 1) / 2;
+            byte[] levelMins = new byte[size];
+            byte[] levelMaxs = new byte[size];
+            for (int i = 0; i < size; ++i) {
+                int second = Math.min(i * 2 + 1, lowerMins.length - 1);
+                levelMins[i] = (byte) Math.min(lowerMins[i * 2], lowerMins[second]);
+                levelMaxs[i] = (byte) Math.max(lowerMaxs[i * 2], lowerMaxs[second]);
+            }
+            mins[level] = levelMins;
+            maxs[level] = levelMaxs;
+        }
+    }
+
+    int length() {
+        return length;
+    }
+
+    int get(int nibble) {
+        return mins[0][nibble];
+    }
+
+    /**
+     * Peaks of the nibbles from start to end, exclusive, packed as min << 4 | max. Bucket edges may round the range
+     * out by less than a bucket of the level read, which is below what a column of pixels shows.
+     */
+    int peaks(int start, int end) {
+        int level = 0;
+        while (level + 1 < mins.length && 2 << level <= (end - start) / 2) {
+            ++level;
+        }
+        byte[] levelMins = mins[level];
+        byte[] levelMaxs = maxs[level];
+        int min = 0xf;
+        int max = 0;
+        for (int i = start >> level; i <= (end - 1) >> level; ++i) {
+            min = Math.min(min, levelMins[i]);
+            max = Math.max(max, levelMaxs[i]);
+        }
+        return min << 4 | max;
+    }
+}
@@ -1,6 +1,7 @@
 package utils;
 
 import structures.LSDJFont;
+import structures.RomImage;
 
 public class RomUtilities {
     public static final int BANK_COUNT = 64;
@@ -11,144 +12,38 @@ public class RomUtilities {
     public static final int PALETTE_SIZE = COLOR_SET_SIZE * NUM_COLOR_SETS;
     public static final int PALETTE_NAME_SIZE = 5;
 
-    private static int findGrayscalePaletteNames(byte[] romImage)
-    {
-        for (int i = 0x4000 * 27;i < 0x4000 * 28; ++i) {
-            if (romImage[i] != 0 &&
-                    romImage[i + 1] != 0 &&
-                    romImage[i + 2] != 0 &&
-                    romImage[i + 3] != 0 &&
-                    romImage[i + 4] == 0 &&
-                    romImage[i + 5] != 0 &&
-                    romImage[i + 6] != 0 &&
-                    romImage[i + 7] != 0 &&
-                    romImage[i + 8] != 0 &&
-                    romImage[i + 9] == 0 &&
-                    romImage[i + 10] != 0 &&
-                    romImage[i + 11] != 0 &&
-                    romImage[i + 12] != 0 &&
-                    romImage[i + 13] != 0 &&
-                    romImage[i + 14] == 0)
-            {
-                return i + 15;
-            }
-        }
-        return -1;
-    }
-
-    private static int findScreenBackgroundData(byte[] romImage)
-    {
-        int numPalettes = getNumberOfPalettes(romImage);
-        if (numPalettes == -1)
-        {
-            return -1;
-        }
-        for (int i = 0x4000; i < 0x8000; ++i)
-        {
-            if (romImage[i] == 0 &&
-                    romImage[i + 1] == 0 &&
-                    romImage[i + 2] == 0 &&
-                    romImage[i + 3] == 0 &&
-                    romImage[i + 4] == 0 &&
-                    romImage[i + 5] == 0 &&
-                    romImage[i + 6] == 0 &&
-                    romImage[i + 7] == 0 &&
-                    romImage[i + 8] == 0 &&
-                    romImage[i + 9] == 0 &&
-                    romImage[i + 10] == 0 &&
-                    romImage[i + 11] == 0 &&
-                    romImage[i + 12] == 0 &&
-                    romImage[i + 13] == 0 &&
-                    romImage[i + 14] == 0 &&
-                    romImage[i + 15] == 0 &&
-                    romImage[i + 16] == 0 &&
-                    romImage[i + 17] == 72 &&
-                    romImage[i + 18] == 72 &&
-                    romImage[i + 19] == 72)
-            {
-                return i;
-            }
-        }
-        return -1;
+    public static int getNumberOfPalettes(RomImage romImage) {
+        return romImage.getLayout().getNumberOfPalettes();
     }
 
-    public static int getNumberOfPalettes(byte[] romImage)
-    {
-        int baseOffset = findGrayscalePaletteNames(romImage);
-        if (baseOffset == -1)
-        {
-            return -1;
-        }
-
-        int numPalettes = 0;
-        for (int j = baseOffset + 4; romImage[j] == 0; j +=5)
-        {
-            ++numPalettes;
-        }
-        return numPalettes/2;
+    public static int findPaletteOffset(RomImage romImage) {
+        return romImage.getLayout().getPaletteOffset();
     }
 
-    public static int findPaletteOffset(byte[] romImage) {
-        // Finds the palette location by searching for the screen
-        // backgrounds, which are defined directly after the palettes
-        // in bank 1.
-        int baseOffset = findScreenBackgroundData(romImage);
-        if (baseOffset == 1)
-        {
-            return -1;
-        }
-        return baseOffset - getNumberOfPalettes(romImage) * PALETTE_SIZE;
-    }
-
-    public static int findPaletteNameOffset(byte[] romImage) {
+    public static int findPaletteNameOffset(RomImage romImage) {
         // Palette names are in bank 27.
-        int baseOffset = findGrayscalePaletteNames(romImage);
-        if (baseOffset == -1)
-        {
-            return -1;
-        }
-
-        return baseOffset + 5 * getNumberOfPalettes(romImage);
-
+        return romImage.getLayout().getPaletteNameOffset();
     }
 
-    public static int findFontOffset(byte[] romImage) {
-        int i = 30 * 0x4000; // Bank 30.
-        while (i < 31 * 0x4000) {
-            // Looks for the end of graphics font.
-            if (romImage[i] == 0 && romImage[i + 1] == 0 && romImage[i + 2] == 0 && romImage[i + 3] == 0
-                    && romImage[i + 4] == (byte) 0xd0 && romImage[i + 5] == (byte) 0x90 && romImage[i + 6] == 0x50
-                    && romImage[i + 7] == 0x50 && romImage[i + 8] == 0x50 && romImage[i + 9] == 0x50
-                    && romImage[i + 10] == 0x50 && romImage[i + 11] == 0x50 && romImage[i + 12] == (byte) 0xd0
-                    && romImage[i + 13] == (byte) 0x90 && romImage[i + 14] == 0 && romImage[i + 15] == 0) {
-                return i + 16;
-            }
-            ++i;
-        }
-        return -1;
+    public static int findFontOffset(RomImage romImage) {
+        return romImage.getLayout().getFontOffset();
     }
 
-    public static int findFontNameOffset(byte[] romImage) {
-        // Palette names are in bank 27.
-        int baseOffset = findGrayscalePaletteNames(romImage);
-        if (baseOffset == -1)
-        {
-            return -1;
-        }
-        return baseOffset - 15;
+    public static int findFontNameOffset(RomImage romImage) {
+        return romImage.getLayout().getFontNameOffset();
     }
 
-    public static String getFontName(byte[] romImage, int font) {
+    public static String getFontName(RomImage romImage, int font) {
         int fontNameSize = 5;
         int nameOffset = findFontNameOffset(romImage);
         StringBuilder s = new StringBuilder();
         for (int i = 0; i < LSDJFont.FONT_NAME_LENGTH; i++) {
-            s.append((char) romImage[nameOffset + font * fontNameSize + i]);
+            s.append((char) romImage.get(nameOffset + font * fontNameSize + i));
         }
         return s.toString();
     }
 
-    public static void setFontName(byte[] romImage, int fontIndex, String fontName) {
+    public static void setFontName(RomImage romImage, int fontIndex, String fontName) {
         StringBuilder fontNameBuilder = new StringBuilder(fontName);
         while (fontNameBuilder.length() < 4) {
             fontNameBuilder.append(" ");
@@ -157,26 +52,43 @@ public class RomUtilities {
         int fontNameSize = 5;
         int nameOffset = findFontNameOffset(romImage);
         for (int i = 0; i < LSDJFont.FONT_NAME_LENGTH; i++) {
-            romImage[nameOffset + fontIndex * fontNameSize + i] = (byte) fontName.charAt(i);
+            romImage.set(nameOffset + fontIndex * fontNameSize + i, (byte) fontName.charAt(i));
         }
     }
 
-    public static void fixChecksum(byte[] romImage) {
+    private static void fixHeaderChecksum(RomImage romImage) {
         int checksum014D = 0;
         for (int i = 0x134; i < 0x14D; ++i) {
-            checksum014D = checksum014D - romImage[i] - 1;
+            checksum014D = checksum014D - romImage.get(i) - 1;
         }
-        romImage[0x14D] = (byte) (checksum014D & 0xFF);
+        romImage.set(0x14D, (byte) (checksum014D & 0xFF));
+    }
+
+    public static void fixChecksum(RomImage romImage) {
+        fixHeaderChecksum(romImage);
 
         int checksum014E = 0;
-        for (int i = 0; i < romImage.length; ++i) {
+        for (int i = 0; i < romImage.length(); ++i) {
             if (i == 0x14E || i == 0x14F) {
                 continue;
             }
-            checksum014E += romImage[i] & 0xFF;
+            checksum014E += romImage.get(i) & 0xFF;
+        }
+
+        romImage.set(0x14E, (byte) ((checksum014E & 0xFF00) >> 8));
+        romImage.set(0x14F, (byte) (checksum014E & 0x00FF));
+    }
+
+    // Same result as fixChecksum, but only the banks written to since the last call are summed again.
+    public static void updateChecksum(RomImage romImage) {
+        fixHeaderChecksum(romImage);
+
+        int checksum014E = romImage.get(0x14D) & 0xFF;
+        for (int bank = 0; bank < romImage.bankCount(); ++bank) {
+            checksum014E += romImage.bankSum(bank);
         }
 
-        romImage[0x14E] = (byte) ((checksum014E & 0xFF00) >> 8);
-        romImage[0x14F] = (byte) (checksum014E & 0x00FF);
+        romImage.set(0x14E, (byte) ((checksum014E & 0xFF00) >> 8));
+        romImage.set(0x14F, (byte) (checksum014E & 0x00FF));
     }
 }
@@ -1,39 +1,215 @@
 package utils;
 
 import java.awt.*;
-import java.awt.geom.GeneralPath;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
+/**
+ * Draws a kit sample as one column per pixel, spanning the nibble peaks under that pixel.
+ * <p>
+ * Peaks come from a {@link PeakPyramid} built once per sample, and the waveform is drawn into an image kept for
+ * as long as the sample, view and canvas size don't change, so that a repaint is a single image copy whatever the
+ * sample length.
+ * <p>
+ * The mouse wheel zooms around the pointer, or pans with shift held. Dragging with the left button selects a
+ * range, a click clears it. Dragging with any other button pans. Changes of the selection are reported as
+ * "selection" property changes.
+ */
 public class SampleCanvas extends Canvas {
-    byte[] buf;
+    private static final int BACKGROUND = 0x000000;
+    private static final int SELECTION = 0x303060;
+    private static final int WAVEFORM = 0xffff00;
+    private static final int MAX_NIBBLE = 0xf;
+    private static final int MIN_VIEW_LENGTH = 16;
+    private static final double ZOOM_STEP = 1.25;
+    // Share of the view scrolled per wheel notch.
+    private static final double PAN_STEP = 0.1;
 
-    public void setBufferContent(byte[] newBuffer)
-    {
-        buf = newBuffer;
+    private PeakPyramid peaks;
+    private BufferedImage image;
+    private boolean imageValid;
+
+    // Shown nibbles, from viewStart to viewEnd exclusive.
+    private int viewStart;
+    private int viewEnd;
+    // Selected nibbles, empty when both are equal.
+    private int selectionStart;
+    private int selectionEnd;
+
+    public SampleCanvas() {
         setBackground(Color.black);
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            private int anchor;
+            private int panX;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (isSelectButton(e)) {
+                    anchor = nibbleAt(e.getX());
+                    setSelection(anchor, anchor);
+                } else {
+                    panX = e.getX();
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (isSelectButton(e)) {
+                    int nibble = nibbleAt(e.getX());
+                    setSelection(Math.min(anchor, nibble), Math.max(anchor, nibble));
+                } else {
+                    int delta = (int) ((long) (panX - e.getX()) * (viewEnd - viewStart) / Math.max(1, getWidth()));
+                    if (delta != 0) {
+                        setView(viewStart + delta, viewEnd + delta);
+                        panX = e.getX();
+                    }
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                int viewLength = viewEnd - viewStart;
+                if (e.isShiftDown()) {
+                    int delta = (int) Math.round(e.getPreciseWheelRotation() * viewLength * PAN_STEP);
+                    setView(viewStart + delta, viewEnd + delta);
+                    return;
+                }
+                int center = nibbleAt(e.getX());
+                double scale = Math.pow(ZOOM_STEP, e.getPreciseWheelRotation());
+                int start = center - (int) Math.round((center - viewStart) * scale);
+                int length = Math.max(MIN_VIEW_LENGTH, (int) Math.round(viewLength * scale));
+                setView(start, start + length);
+            }
+
+            private boolean isSelectButton(MouseEvent e) {
+                return (e.getModifiersEx() & InputEvent.BUTTON1_DOWN_MASK) != 0;
+            }
+        };
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+    }
+
+    /**
+     * Shows new sample content. The view and selection are kept if the length is unchanged, reset otherwise.
+     */
+    public void setBufferContent(byte[] newBuffer) {
+        int oldLength = peaks == null ? 0 : peaks.length();
+        peaks = newBuffer == null ? null : new PeakPyramid(newBuffer);
+        int length = peaks == null ? 0 : peaks.length();
+        if (length != oldLength) {
+            viewStart = 0;
+            viewEnd = length;
+            setSelection(0, 0);
+        }
+        imageValid = false;
+        repaint();
+    }
+
+    public boolean hasSelection() {
+        return selectionEnd > selectionStart;
+    }
+
+    /**
+     * First selected nibble.
+     */
+    public int getSelectionStart() {
+        return selectionStart;
+    }
+
+    /**
+     * Nibble after the last selected one.
+     */
+    public int getSelectionEnd() {
+        return selectionEnd;
+    }
+
+    private void setSelection(int start, int end) {
+        boolean hadSelection = hasSelection();
+        selectionStart = start;
+        selectionEnd = end;
+        imageValid = false;
+        repaint();
+        firePropertyChange("selection", hadSelection, hasSelection());
+    }
+
+    private void setView(int start, int end) {
+        int length = peaks == null ? 0 : peaks.length();
+        int viewLength = Math.min(length, end - start);
+        start = Math.max(0, Math.min(start, length - viewLength));
+        if (start == viewStart && start + viewLength == viewEnd) {
+            return;
+        }
+        viewStart = start;
+        viewEnd = start + viewLength;
+        imageValid = false;
+        repaint();
+    }
+
+    private int nibbleAt(int x) {
+        int width = Math.max(1, getWidth());
+        x = Math.max(0, Math.min(width, x));
+        return viewStart + (int) ((long) x * (viewEnd - viewStart) / width);
     }
 
+    // The image covers the whole canvas, so the background doesn't need clearing first.
     @Override
-    public void paint(Graphics gg) {
-        Graphics2D g = (Graphics2D) gg;
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);
+    public void update(Graphics g) {
+        paint(g);
+    }
 
-        double w = g.getClipBounds().getWidth();
-        double h = g.getClipBounds().getHeight();
+    @Override
+    public void paint(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            imageValid = false;
+        }
+        if (!imageValid) {
+            render();
+            imageValid = true;
+        }
+        g.drawImage(image, 0, 0, null);
+    }
 
-        if (buf == null) {
+    private void render() {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, BACKGROUND);
+        if (peaks == null || viewEnd <= viewStart) {
             return;
         }
 
-        GeneralPath gp = new GeneralPath();
-        gp.moveTo(0, h);
-        for (int it = 0; it < buf.length; ++it) {
-            double val = buf[it];
-            if (val < 0) val += 256;
-            val /= 0xf0;
-            gp.lineTo(it * w / (buf.length - 1), h - h * val);
+        int viewLength = viewEnd - viewStart;
+        for (int x = 0; x < width; ++x) {
+            int start = viewStart + (int) ((long) x * viewLength / width);
+            int end = Math.max(start + 1, viewStart + (int) ((long) (x + 1) * viewLength / width));
+            if (start < selectionEnd && end > selectionStart) {
+                for (int y = 0; y < height; ++y) {
+                    pixels[y * width + x] = SELECTION;
+                }
+            }
+            // Reaching into the next column's first nibble keeps the waveform connected.
+            int columnPeaks = peaks.peaks(start, Math.min(peaks.length(), end + 1));
+            int top = y(columnPeaks & 0xf, height);
+            int bottom = y(columnPeaks >> 4, height);
+            for (int y = top; y <= bottom; ++y) {
+                pixels[y * width + x] = WAVEFORM;
+            }
         }
-        g.setColor(Color.YELLOW);
-        g.draw(gp);
+    }
+
+    private static int y(int nibble, int height) {
+        return (height - 1) - nibble * (height - 1) / MAX_NIBBLE;
     }
 }